@@ -3,6 +3,7 @@ plugins {
 	id("org.springframework.boot") version "3.2.4"
 	id("io.spring.dependency-management") version "1.1.4"
 	id("io.freefair.lombok") version "8.6"
+	id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "vn.hoidanit"
@@ -43,3 +44,10 @@ dependencies {
 tasks.withType<Test> {
 	useJUnitPlatform()
 }
+
+// Microbenchmark trong src/jmh, chạy bằng ./gradlew jmh (không nằm trong build)
+jmh {
+	fork.set(1)
+	warmupIterations.set(3)
+	iterations.set(5)
+}
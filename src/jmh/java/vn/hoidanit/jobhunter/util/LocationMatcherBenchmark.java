@@ -0,0 +1,60 @@
+package vn.hoidanit.jobhunter.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * LocationMatcher.matches theo các kiểu input gặp khi lọc job alert / search:
+ * alias có trong từ điển, location lạ (so khớp chứa nhau) và chuỗi chưa từng gặp (phải chuẩn hóa).
+ * Chạy cùng benchmark này trên commit trước [user-021] để có số liệu trước/sau.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LocationMatcherBenchmark {
+
+	private static final String[][] KNOWN_PAIRS = {
+			{ "Hồ Chí Minh", "TP.HCM" },
+			{ "Ha Noi", "Hà Nội" },
+			{ "Sài Gòn", "Đà Nẵng" },
+			{ "Bà Rịa - Vũng Tàu", "BRVT" },
+			{ "Yên Bái", "Yen Bai" },
+			{ "Thừa Thiên Huế", "Hue" },
+	};
+
+	private static final String[][] UNKNOWN_PAIRS = {
+			{ "Remote", "Remote" },
+			{ "Quận 1", "Quan 1 HCM" },
+			{ "Singapore", "Hà Nội" },
+			{ "Tokyo", "Osaka" },
+	};
+
+	private long counter;
+
+	@Benchmark
+	public void knownAliases(Blackhole blackhole) {
+		for (String[] pair : KNOWN_PAIRS) {
+			blackhole.consume(LocationMatcher.matches(pair[0], pair[1]));
+		}
+	}
+
+	@Benchmark
+	public void unknownLocations(Blackhole blackhole) {
+		for (String[] pair : UNKNOWN_PAIRS) {
+			blackhole.consume(LocationMatcher.matches(pair[0], pair[1]));
+		}
+	}
+
+	@Benchmark
+	public boolean uncachedInput() {
+		// Chuỗi mới mỗi lần: đo chi phí chuẩn hóa khi không có trong cache
+		return LocationMatcher.matches("Thành phố Hồ Chí Minh " + (counter++), "TP.HCM");
+	}
+}
@@ -0,0 +1,177 @@
+package vn.hoidanit.jobhunter.config;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Executor riêng cho từng loại việc chạy nền, để một loại bị chậm (ví dụ SMTP) không chiếm luồng của loại khác:
+ * - alertExecutor: so khớp job mới với job alert; bị từ chối thì job quay lại lô chờ của NewJobNotificationBatcher
+ * - mailExecutor: gửi email (EmailDispatcher, EmailService); bị từ chối thì email vẫn nằm trong outbox chờ lượt sau
+ * - aiExecutor: gọi AI server lấy matching score; bị từ chối thì job đó không có score ở lượt này
+ *   (không chạy trên luồng request để giữ deadline của lô)
+ * - digestExecutor: các luồng gửi của digest job alert hàng ngày (mỗi luồng chạy suốt lượt digest,
+ *   số luồng gửi = max-size) nên tách khỏi mailExecutor để không chặn EmailDispatcher
+ *
+ * Kích thước cấu hình qua hoidanit.async.{alert|mail|ai|digest}.core-size / max-size / queue-capacity.
+ * hoidanit.async.virtual-threads=true dùng virtual thread (cần JDK 21 khi chạy), khi đó max-size là
+ * số task chạy đồng thời tối đa và không có hàng đợi: task vượt giới hạn bị từ chối ngay
+ * (TaskRejectedException, như AbortPolicy) chứ không chặn luồng gửi task.
+ *
+ * Gauge executor.active / executor.queued / executor.pool.size do actuator tự đăng ký cho các bean
+ * ThreadPoolTaskExecutor (tag name theo tên bean); thời gian chờ và thời gian chạy của task được ghi
+ * vào timer async.task.wait / async.task.duration (tag executor).
+ */
+@Slf4j
+@Configuration
+public class AsyncConfiguration implements AsyncConfigurer {
+
+    public static final String ALERT_EXECUTOR = "alertExecutor";
+    public static final String MAIL_EXECUTOR = "mailExecutor";
+    public static final String AI_EXECUTOR = "aiExecutor";
+    public static final String DIGEST_EXECUTOR = "digestExecutor";
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    public AsyncConfiguration(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean(name = ALERT_EXECUTOR)
+    public AsyncTaskExecutor alertExecutor() {
+        return buildExecutor("alert", 2, 4, 100, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean(name = MAIL_EXECUTOR)
+    public AsyncTaskExecutor mailExecutor() {
+        return buildExecutor("mail", 2, 4, 100, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean(name = AI_EXECUTOR)
+    public AsyncTaskExecutor aiExecutor() {
+        return buildExecutor("ai", 4, 8, 200, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean(name = DIGEST_EXECUTOR)
+    public AsyncTaskExecutor digestExecutor() {
+        return buildExecutor("digest", 4, 4, 0, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @Async không ghi tên executor chạy trên alertExecutor thay vì SimpleAsyncTaskExecutor (không giới hạn)
+     */
+    @Override
+    public Executor getAsyncExecutor() {
+        return alertExecutor();
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (ex, method, params) -> log.error("Async method {}.{} failed: {}",
+                method.getDeclaringClass().getSimpleName(), method.getName(), ex.getMessage(), ex);
+    }
+
+    private AsyncTaskExecutor buildExecutor(String name, int defaultCoreSize, int defaultMaxSize,
+            int defaultQueueCapacity, RejectedExecutionHandler rejectedExecutionHandler) {
+        String prefix = "hoidanit.async." + name + ".";
+        int coreSize = Math.max(1, this.environment.getProperty(prefix + "core-size", Integer.class, defaultCoreSize));
+        int maxSize = Math.max(coreSize, this.environment.getProperty(prefix + "max-size", Integer.class, defaultMaxSize));
+        int queueCapacity = Math.max(0, this.environment.getProperty(prefix + "queue-capacity", Integer.class, defaultQueueCapacity));
+
+        if (this.environment.getProperty("hoidanit.async.virtual-threads", Boolean.class, false)) {
+            BoundedAsyncTaskExecutor executor = new BoundedAsyncTaskExecutor(name + "-", maxSize);
+            executor.setVirtualThreads(true);
+            executor.setTaskDecorator(timed(name));
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(name + "-");
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(rejectedExecutionHandler);
+        executor.setTaskDecorator(timed(name));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    private TaskDecorator timed(String name) {
+        Timer wait = Timer.builder("async.task.wait")
+                .description("Thời gian task chờ trong hàng đợi của executor")
+                .tag("executor", name)
+                .register(this.meterRegistry);
+        Timer duration = Timer.builder("async.task.duration")
+                .description("Thời gian chạy của task trên executor")
+                .tag("executor", name)
+                .register(this.meterRegistry);
+        return task -> {
+            long submittedAt = System.nanoTime();
+            return () -> {
+                long startedAt = System.nanoTime();
+                wait.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    task.run();
+                } finally {
+                    duration.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            };
+        };
+    }
+
+    /**
+     * Mỗi task một thread mới, tối đa limit task chạy cùng lúc. Khác setConcurrencyLimit của
+     * SimpleAsyncTaskExecutor (chặn luồng gửi cho tới khi có chỗ): hết chỗ thì ném TaskRejectedException ngay.
+     */
+    static final class BoundedAsyncTaskExecutor extends SimpleAsyncTaskExecutor {
+
+        private final Semaphore permits;
+        private final int limit;
+
+        BoundedAsyncTaskExecutor(String threadNamePrefix, int limit) {
+            super(threadNamePrefix);
+            this.limit = limit;
+            this.permits = new Semaphore(limit);
+        }
+
+        @Override
+        protected void doExecute(Runnable task) {
+            if (!this.permits.tryAcquire()) {
+                throw new TaskRejectedException(
+                        "Executor " + getThreadNamePrefix() + " đã chạy đủ " + this.limit + " task, từ chối task mới");
+            }
+            try {
+                super.doExecute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        this.permits.release();
+                    }
+                });
+            } catch (RuntimeException ex) {
+                this.permits.release();
+                throw ex;
+            }
+        }
+    }
+}
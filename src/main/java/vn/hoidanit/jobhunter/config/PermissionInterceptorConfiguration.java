@@ -26,6 +26,7 @@ public class PermissionInterceptorConfiguration implements WebMvcConfigurer {
                 "/api/v1/user-cvs/**",
                 "/api/v1/feedback/**",
                 "/api/v1/email/**",
+                "/api/v1/internal/**",
                 // Swagger UI paths
                 "/v3/api-docs/**",
                 "/swagger-ui/**",
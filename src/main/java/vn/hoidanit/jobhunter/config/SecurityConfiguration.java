@@ -55,6 +55,7 @@ public class SecurityConfiguration {
                 "/api/v1/feedback",
                 "/storage/**",
                 "/api/v1/email/**",
+                "/api/v1/internal/matching-scores/invalidate",
                 "/v3/api-docs/**",
                 "/swagger-ui/**",
                 "/swagger-ui.html"
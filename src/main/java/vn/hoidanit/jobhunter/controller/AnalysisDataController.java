@@ -0,0 +1,58 @@
+package vn.hoidanit.jobhunter.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import vn.hoidanit.jobhunter.service.AnalysisDataService;
+import vn.hoidanit.jobhunter.util.annotation.ApiMessage;
+import vn.hoidanit.jobhunter.util.error.IdInvalidException;
+import vn.hoidanit.jobhunter.util.error.PermissionException;
+
+/**
+ * Endpoint nội bộ cho AI server báo matching scores đã thay đổi.
+ * Không dùng JWT: xác thực bằng header X-Internal-Token = hoidanit.ai-server.invalidation-token
+ * (để trống thì endpoint luôn từ chối).
+ */
+@RestController
+@RequestMapping("/api/v1/internal/matching-scores")
+public class AnalysisDataController {
+
+    private final AnalysisDataService analysisDataService;
+    private final String invalidationToken;
+
+    public AnalysisDataController(
+            AnalysisDataService analysisDataService,
+            @Value("${hoidanit.ai-server.invalidation-token:}") String invalidationToken) {
+        this.analysisDataService = analysisDataService;
+        this.invalidationToken = invalidationToken;
+    }
+
+    @PostMapping("/invalidate")
+    @ApiMessage("Invalidate cached matching scores")
+    public ResponseEntity<Void> invalidate(
+            @RequestHeader(value = "X-Internal-Token", required = false) String token,
+            @RequestParam(value = "jobId", required = false) Long jobId,
+            @RequestParam(value = "userId", required = false) Long userId)
+            throws PermissionException, IdInvalidException {
+        if (this.invalidationToken.isBlank() || token == null
+                || !MessageDigest.isEqual(this.invalidationToken.getBytes(StandardCharsets.UTF_8),
+                        token.getBytes(StandardCharsets.UTF_8))) {
+            throw new PermissionException("Invalid internal token");
+        }
+        if (jobId == null && userId == null) {
+            throw new IdInvalidException("jobId hoặc userId là bắt buộc");
+        }
+
+        this.analysisDataService.evictJob(jobId);
+        this.analysisDataService.evictUser(userId);
+        return ResponseEntity.ok().build();
+    }
+}
@@ -24,6 +24,7 @@ import jakarta.validation.Valid;
 import vn.hoidanit.jobhunter.domain.Job;
 import vn.hoidanit.jobhunter.domain.response.ResultPaginationDTO;
 import vn.hoidanit.jobhunter.domain.response.job.ResCreateJobDTO;
+import vn.hoidanit.jobhunter.domain.response.job.ResJobFacetsDTO;
 import vn.hoidanit.jobhunter.domain.response.job.ResUpdateJobDTO;
 import vn.hoidanit.jobhunter.service.JobService;
 import vn.hoidanit.jobhunter.service.ResumeService;
@@ -93,8 +94,13 @@ public class JobController {
     @ApiMessage("Get job with pagination")
     public ResponseEntity<ResultPaginationDTO> getAllJob(
             @Filter Specification<Job> spec,
-            Pageable pageable) {
+            @RequestParam(value = "cursor", required = false) String cursor,
+            Pageable pageable) throws IdInvalidException {
 
+        // Có tham số cursor (kể cả rỗng cho trang đầu) thì dùng keyset pagination
+        if (cursor != null) {
+            return ResponseEntity.ok().body(this.jobService.fetchAllByCursor(spec, pageable, cursor));
+        }
         return ResponseEntity.ok().body(this.jobService.fetchAll(spec, pageable));
     }
 
@@ -110,15 +116,42 @@ public class JobController {
             @RequestParam(value = "level", required = false) String level,
             @RequestParam(value = "companyName", required = false) String companyName,
             @RequestParam(value = "categories", required = false) String categories,
-            Pageable pageable) {
+            @RequestParam(value = "cursor", required = false) String cursor,
+            Pageable pageable) throws IdInvalidException {
 
+        if (cursor != null) {
+            return ResponseEntity.ok().body(this.jobService.userSearchAndFilterByCursor(
+                    keyword, location, skills, minSalary, maxSalary, level, companyName, categories, pageable, cursor));
+        }
         return ResponseEntity.ok().body(this.jobService.userSearchAndFilter(
                 keyword, location, skills, minSalary, maxSalary, level, companyName, categories, pageable));
     }
 
+    @GetMapping("/jobs/facets")
+    @ApiMessage("Get facet counts for job search")
+    public ResponseEntity<ResJobFacetsDTO> getJobFacets(
+            @RequestParam(value = "keyword", required = false) String keyword,
+            @RequestParam(value = "location", required = false) String location,
+            @RequestParam(value = "skills", required = false) String skills,
+            @RequestParam(value = "minSalary", required = false) Double minSalary,
+            @RequestParam(value = "maxSalary", required = false) Double maxSalary,
+            @RequestParam(value = "level", required = false) String level,
+            @RequestParam(value = "companyName", required = false) String companyName,
+            @RequestParam(value = "categories", required = false) String categories) {
+
+        return ResponseEntity.ok().body(this.jobService.fetchFacets(
+                keyword, location, skills, minSalary, maxSalary, level, companyName, categories));
+    }
+
     @GetMapping("/jobs/matching")
     @ApiMessage("Get matching jobs for current user based on skills")
-    public ResponseEntity<ResultPaginationDTO> getMatchingJobs(Pageable pageable) {
+    public ResponseEntity<ResultPaginationDTO> getMatchingJobs(
+            @RequestParam(value = "mode", required = false) String mode,
+            Pageable pageable) {
+        // mode=relevance: xếp theo mức độ phù hợp thay vì thứ tự sort
+        if ("relevance".equalsIgnoreCase(mode)) {
+            return ResponseEntity.ok().body(this.jobService.fetchRankedMatchingJobsForCurrentUser(pageable));
+        }
         return ResponseEntity.ok().body(this.jobService.fetchMatchingJobsForCurrentUser(pageable));
     }
 
@@ -132,8 +165,12 @@ public class JobController {
     @ApiMessage("Get jobs by company ID")
     public ResponseEntity<ResultPaginationDTO> getJobsByCompany(
             @PathVariable("companyId") long companyId,
-            Pageable pageable) {
+            @RequestParam(value = "cursor", required = false) String cursor,
+            Pageable pageable) throws IdInvalidException {
 
+        if (cursor != null) {
+            return ResponseEntity.ok().body(this.jobService.fetchJobsByCompanyByCursor(companyId, pageable, cursor));
+        }
         return ResponseEntity.ok().body(this.jobService.fetchJobsByCompany(companyId, pageable));
     }
 
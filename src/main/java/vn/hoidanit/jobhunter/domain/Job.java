@@ -14,6 +14,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
@@ -25,11 +26,14 @@ import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Getter;
 import lombok.Setter;
+import vn.hoidanit.jobhunter.util.LocationMatcher;
 import vn.hoidanit.jobhunter.util.SecurityUtil;
 import vn.hoidanit.jobhunter.util.constant.LevelEnum;
 
 @Entity
-@Table(name = "jobs")
+@Table(name = "jobs", indexes = {
+        @Index(name = "idx_jobs_location_id", columnList = "location_id")
+})
 @Getter
 @Setter
 public class Job {
@@ -43,6 +47,11 @@ public class Job {
     @NotBlank(message = "location không được để trống")
     private String location;
 
+    // ID tỉnh/thành chuẩn của location (LocationMatcher), 0 nếu không có trong từ điển, null nếu chưa backfill
+    @Column(name = "location_id")
+    @JsonIgnore
+    private Integer locationId;
+
     private double salary;
 
     private int quantity;
@@ -87,6 +96,7 @@ public class Job {
                 ? SecurityUtil.getCurrentUserLogin().get()
                 : "";
 
+        this.locationId = LocationMatcher.locationId(this.location);
         this.createdAt = Instant.now();
     }
 
@@ -96,6 +106,7 @@ public class Job {
                 ? SecurityUtil.getCurrentUserLogin().get()
                 : "";
 
+        this.locationId = LocationMatcher.locationId(this.location);
         this.updatedAt = Instant.now();
     }
 }
@@ -4,6 +4,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import jakarta.persistence.Column;
@@ -12,6 +13,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
@@ -21,9 +23,12 @@ import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
+import vn.hoidanit.jobhunter.util.LocationMatcher;
 
 @Entity
-@Table(name = "job_alerts")
+@Table(name = "job_alerts", indexes = {
+        @Index(name = "idx_job_alerts_location_id", columnList = "location_id")
+})
 @Getter
 @Setter
 public class JobAlert {
@@ -42,6 +47,12 @@ public class JobAlert {
 
     private String email;
     private String location;
+
+    // ID tỉnh/thành chuẩn của location (LocationMatcher), 0 nếu không có trong từ điển, null nếu chưa backfill
+    @Column(name = "location_id")
+    @JsonIgnore
+    private Integer locationId;
+
     private String experience;
 
     @Column(name = "desired_salary")
@@ -68,11 +79,13 @@ public class JobAlert {
 
     @PrePersist
     public void handleBeforeCreate() {
+        this.locationId = LocationMatcher.locationId(this.location);
         this.createdAt = Instant.now();
     }
 
     @PreUpdate
     public void handleBeforeUpdate() {
+        this.locationId = LocationMatcher.locationId(this.location);
         this.updatedAt = Instant.now();
     }
 }
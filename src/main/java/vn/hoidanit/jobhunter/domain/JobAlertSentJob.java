@@ -0,0 +1,40 @@
+package vn.hoidanit.jobhunter.domain;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Job đã gửi qua job alert cho một user trong một ngày (dùng cho giới hạn số job gửi mỗi ngày)
+ */
+@Entity
+@Table(name = "job_alert_sent_jobs", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_job_alert_sent_user_day_job", columnNames = { "user_id", "sent_date", "job_id" })
+}, indexes = {
+        @Index(name = "idx_job_alert_sent_date", columnList = "sent_date")
+})
+@Getter
+@Setter
+public class JobAlertSentJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Column(name = "user_id", nullable = false)
+    private long userId;
+
+    @Column(name = "sent_date", nullable = false)
+    private LocalDate sentDate;
+
+    @Column(name = "job_id", nullable = false)
+    private long jobId;
+}
@@ -1,5 +1,7 @@
 package vn.hoidanit.jobhunter.domain.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.Getter;
 import lombok.Setter;
 
@@ -9,12 +11,15 @@ public class ResultPaginationDTO {
     private Meta meta;
     private Object result;
 
+    // Chế độ cursor không có page/pages/total, chỉ có nextCursor
     @Getter
     @Setter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     public static class Meta {
-        private int page;
+        private Integer page;
         private int pageSize;
-        private int pages;
-        private long total;
+        private Integer pages;
+        private Long total;
+        private String nextCursor;
     }
 }
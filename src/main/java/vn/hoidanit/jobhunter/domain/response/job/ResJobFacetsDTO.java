@@ -0,0 +1,38 @@
+package vn.hoidanit.jobhunter.domain.response.job;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ResJobFacetsDTO {
+    // Số job active khớp với bộ lọc hiện tại
+    private long total;
+
+    private List<FacetCount> locations;
+    private List<FacetCount> skills;
+    private List<FacetCount> levels;
+    private List<FacetCount> categories;
+    private List<SalaryBucket> salaryRanges;
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    public static class FacetCount {
+        private String value;
+        private long count;
+    }
+
+    // Khoảng lương [min, max), null nghĩa là không giới hạn
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    public static class SalaryBucket {
+        private Double min;
+        private Double max;
+        private long count;
+    }
+}
@@ -0,0 +1,70 @@
+package vn.hoidanit.jobhunter.domain.response.job;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import vn.hoidanit.jobhunter.util.constant.LevelEnum;
+
+/**
+ * Job rút gọn cho các trang danh sách (không có description, company.description, category).
+ * Tên field giữ giống entity Job để frontend không phải đổi.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class ResJobSummaryDTO {
+    private long id;
+    private String name;
+    private String location;
+    private double salary;
+    private int quantity;
+    private LevelEnum level;
+    private Instant startDate;
+    private Instant endDate;
+    private boolean active;
+    private Instant createdAt;
+    private Instant updatedAt;
+
+    private CompanyJob company;
+    private List<SkillJob> skills = new ArrayList<>();
+
+    // Dùng cho JPQL constructor expression trong JobRepository
+    public ResJobSummaryDTO(Long id, String name, String location, Double salary, Integer quantity,
+            LevelEnum level, Instant startDate, Instant endDate, Boolean active, Instant createdAt,
+            Instant updatedAt, Long companyId, String companyName, String companyLogo) {
+        this.id = id;
+        this.name = name;
+        this.location = location;
+        this.salary = salary != null ? salary : 0;
+        this.quantity = quantity != null ? quantity : 0;
+        this.level = level;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.active = Boolean.TRUE.equals(active);
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.company = companyId != null ? new CompanyJob(companyId, companyName, companyLogo) : null;
+    }
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    public static class CompanyJob {
+        private long id;
+        private String name;
+        private String logo;
+    }
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    public static class SkillJob {
+        private long id;
+        private String name;
+    }
+}
@@ -0,0 +1,35 @@
+package vn.hoidanit.jobhunter.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import vn.hoidanit.jobhunter.domain.EmailOutbox;
+import vn.hoidanit.jobhunter.util.constant.EmailStatusEnum;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+    /**
+     * Lấy và khóa một lô email đến hạn gửi (kể cả email SENDING bị bỏ dở quá lâu).
+     * SKIP LOCKED để nhiều worker / nhiều instance không lấy trùng. Gọi trong transaction.
+     */
+    @Query(value = "SELECT * FROM email_outbox "
+            + "WHERE (status = 'PENDING' AND next_attempt_at <= :now) "
+            + "OR (status = 'SENDING' AND locked_at < :staleBefore) "
+            + "ORDER BY next_attempt_at, id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<EmailOutbox> claimBatch(@Param("now") Instant now, @Param("staleBefore") Instant staleBefore,
+            @Param("limit") int limit);
+
+    long countByStatus(EmailStatusEnum status);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM EmailOutbox e WHERE e.status = :status AND e.sentAt < :before")
+    int deleteByStatusAndSentAtBefore(@Param("status") EmailStatusEnum status, @Param("before") Instant before);
+}
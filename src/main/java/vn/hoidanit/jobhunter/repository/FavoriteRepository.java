@@ -17,9 +17,10 @@ public interface FavoriteRepository extends JpaRepository<Favorite, Long> {
     List<Favorite> findByUser(User user);
 
     /**
-     * Fetch favorites with job, job.skills, and job.company eagerly
+     * Fetch favorites with job and job.company eagerly (FavoriteJobDTO không dùng skills/category,
+     * fetch thêm collection skills chỉ làm nhân bản số dòng)
      */
-    @EntityGraph(attributePaths = { "job", "job.skills", "job.company", "job.category" })
+    @EntityGraph(attributePaths = { "job", "job.company" })
     @Query("SELECT f FROM Favorite f WHERE f.user = :user AND f.job IS NOT NULL")
     List<Favorite> findByUserAndJobIsNotNull(@Param("user") User user);
 
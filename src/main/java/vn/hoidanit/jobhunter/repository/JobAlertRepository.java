@@ -2,9 +2,11 @@ package vn.hoidanit.jobhunter.repository;
 
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import vn.hoidanit.jobhunter.domain.JobAlert;
@@ -16,9 +18,32 @@ public interface JobAlertRepository extends JpaRepository<JobAlert, Long> {
 
     List<JobAlert> findByActiveTrue();
 
-    @EntityGraph(attributePaths = { "skills", "user", "category" })
-    @Query("SELECT DISTINCT ja FROM JobAlert ja WHERE ja.active = true")
-    List<JobAlert> findActiveAlertsWithSkills();
+    /**
+     * Keyset theo (user_id, id): các alert active có user nằm sau vị trí (userId, id)
+     */
+    @EntityGraph(attributePaths = { "user", "category" })
+    @Query("SELECT ja FROM JobAlert ja WHERE ja.active = true AND ja.user IS NOT NULL "
+            + "AND (ja.user.id > :userId OR (ja.user.id = :userId AND ja.id > :id)) "
+            + "ORDER BY ja.user.id, ja.id")
+    List<JobAlert> findActiveWithUserAfter(@Param("userId") long userId, @Param("id") long id, Pageable pageable);
+
+    /**
+     * Các alert active còn lại của một user sau alert id (để chunk không cắt ngang alert của một user)
+     */
+    @EntityGraph(attributePaths = { "user", "category" })
+    @Query("SELECT ja FROM JobAlert ja WHERE ja.active = true AND ja.user.id = :userId AND ja.id > :id ORDER BY ja.id")
+    List<JobAlert> findActiveByUserIdAfter(@Param("userId") long userId, @Param("id") long id);
+
+    @EntityGraph(attributePaths = { "category" })
+    @Query("SELECT ja FROM JobAlert ja WHERE ja.active = true AND ja.user IS NULL AND ja.id > :id ORDER BY ja.id")
+    List<JobAlert> findActiveWithoutUserAfter(@Param("id") long id, Pageable pageable);
+
+    /**
+     * Nạp skills cho các alert của một chunk đã có trong persistence context (một query, chỉ join skills)
+     */
+    @EntityGraph(attributePaths = { "skills" })
+    @Query("SELECT DISTINCT ja FROM JobAlert ja WHERE ja.id IN :ids")
+    List<JobAlert> fetchSkillsByIdIn(@Param("ids") List<Long> ids);
 
     @EntityGraph(attributePaths = { "skills", "user", "category" })
     @Query("SELECT DISTINCT ja FROM JobAlert ja WHERE ja.id = :id")
@@ -0,0 +1,23 @@
+package vn.hoidanit.jobhunter.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import vn.hoidanit.jobhunter.domain.JobAlertSentJob;
+
+@Repository
+public interface JobAlertSentJobRepository extends JpaRepository<JobAlertSentJob, Long> {
+    List<JobAlertSentJob> findBySentDate(LocalDate sentDate);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM JobAlertSentJob s WHERE s.sentDate < :date")
+    int deleteBySentDateBefore(@Param("date") LocalDate date);
+}
@@ -1,28 +1,59 @@
 package vn.hoidanit.jobhunter.repository;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import vn.hoidanit.jobhunter.domain.Job;
 import vn.hoidanit.jobhunter.domain.Skill;
+import vn.hoidanit.jobhunter.domain.response.job.ResJobSummaryDTO;
 
 @Repository
 public interface JobRepository extends JpaRepository<Job, Long>,
-                JpaSpecificationExecutor<Job> {
+                JpaSpecificationExecutor<Job>, JobRepositoryCustom {
 
         List<Job> findBySkillsIn(List<Skill> skills);
 
+        @Query("SELECT j.id FROM Job j")
+        List<Long> findAllIds();
+
+        @Query("SELECT DISTINCT j.location FROM Job j WHERE j.location IS NOT NULL")
+        List<String> findDistinctLocations();
+
+        /**
+         * ID các job còn active nhưng đã quá endDate (theo lô)
+         */
+        @Query("SELECT j.id FROM Job j WHERE j.active = true AND j.endDate <= :now ORDER BY j.id")
+        List<Long> findExpiredActiveJobIds(@Param("now") Instant now, Pageable pageable);
+
+        @Modifying
+        @Transactional
+        @Query("UPDATE Job j SET j.active = false WHERE j.id IN :ids AND j.active = true AND j.endDate <= :now")
+        int deactivateExpiredByIds(@Param("ids") List<Long> ids, @Param("now") Instant now);
+
+        /**
+         * endDate sớm nhất trong các job còn active và chưa hết hạn
+         */
+        @Query("SELECT MIN(j.endDate) FROM Job j WHERE j.active = true AND j.endDate > :now")
+        Instant findNextEndDate(@Param("now") Instant now);
+
         @Query("SELECT j FROM Job j LEFT JOIN FETCH j.skills WHERE j.id = :id")
         Optional<Job> findByIdWithSkills(@Param("id") Long id);
 
@@ -41,13 +72,49 @@ public interface JobRepository extends JpaRepository<Job, Long>,
         Page<Job> findAllWithRelations(Pageable pageable);
 
         /**
-         * Fetch jobs with skills and company eagerly using Specification
-         * Note: This overrides the default findAll to add EntityGraph
+         * Cột cần cho trang danh sách job (không có description, company.description, category)
          */
-        @Override
-        @EntityGraph(attributePaths = { "skills", "company", "category" })
-        @NonNull
-        Page<Job> findAll(@NonNull Specification<Job> spec, @NonNull Pageable pageable);
+        @Query("SELECT new vn.hoidanit.jobhunter.domain.response.job.ResJobSummaryDTO("
+                        + "j.id, j.name, j.location, j.salary, j.quantity, j.level, j.startDate, j.endDate, "
+                        + "j.active, j.createdAt, j.updatedAt, c.id, c.name, c.logo) "
+                        + "FROM Job j LEFT JOIN j.company c WHERE j.id IN :ids")
+        List<ResJobSummaryDTO> findSummariesByIds(@Param("ids") List<Long> ids);
+
+        /**
+         * Tên skill của nhiều job trong một query: mỗi dòng là [jobId, skillId, skillName]
+         */
+        @Query("SELECT j.id, s.id, s.name FROM Job j JOIN j.skills s WHERE j.id IN :ids")
+        List<Object[]> findSkillNamesByJobIds(@Param("ids") List<Long> ids);
+
+        /**
+         * Trang danh sách job dạng rút gọn: lấy ID của trang bằng Specification + sort,
+         * sau đó chỉ đọc các cột cần thiết cho các ID đó
+         */
+        default Page<ResJobSummaryDTO> findSummaryPage(Specification<Job> spec, Pageable pageable) {
+                Page<Long> pageIds = findIds(spec, pageable);
+                return new PageImpl<>(findSummariesInOrder(pageIds.getContent()), pageable,
+                                pageIds.getTotalElements());
+        }
+
+        /**
+         * Job rút gọn kèm skills theo đúng thứ tự của ids (2 query cho cả trang)
+         */
+        default List<ResJobSummaryDTO> findSummariesInOrder(List<Long> ids) {
+                if (ids.isEmpty()) {
+                        return new ArrayList<>();
+                }
+                List<ResJobSummaryDTO> summaries = SpecificationIdPaging.inOrder(ids, findSummariesByIds(ids),
+                                ResJobSummaryDTO::getId);
+                Map<Long, ResJobSummaryDTO> byId = new HashMap<>();
+                summaries.forEach(summary -> byId.put(summary.getId(), summary));
+                for (Object[] row : findSkillNamesByJobIds(ids)) {
+                        ResJobSummaryDTO summary = byId.get((Long) row[0]);
+                        if (summary != null) {
+                                summary.getSkills().add(new ResJobSummaryDTO.SkillJob((Long) row[1], (String) row[2]));
+                        }
+                }
+                return summaries;
+        }
 
         /**
          * Fetch all jobs with skills and company eagerly using Specification (no pagination)
@@ -0,0 +1,26 @@
+package vn.hoidanit.jobhunter.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import vn.hoidanit.jobhunter.domain.Job;
+
+public interface JobRepositoryCustom {
+
+        /**
+         * Chỉ lấy ID của các job thuộc trang hiện tại (kèm count).
+         * Entity được load sau bằng findByIdsWithSkills để tránh phân trang trong bộ nhớ
+         * khi fetch join collection.
+         */
+        Page<Long> findIds(Specification<Job> spec, Pageable pageable);
+
+        /**
+         * Chỉ lấy tối đa limit ID theo sort, không count (phân trang keyset).
+         * Chỉ SELECT id và cột sort, không load description hay quan hệ EAGER.
+         */
+        List<Long> findIds(Specification<Job> spec, Sort sort, int limit);
+}
@@ -0,0 +1,28 @@
+package vn.hoidanit.jobhunter.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import vn.hoidanit.jobhunter.domain.Job;
+
+public class JobRepositoryImpl implements JobRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<Long> findIds(Specification<Job> spec, Pageable pageable) {
+        return SpecificationIdPaging.findIds(this.entityManager, Job.class, spec, pageable);
+    }
+
+    @Override
+    public List<Long> findIds(Specification<Job> spec, Sort sort, int limit) {
+        return SpecificationIdPaging.findIds(this.entityManager, Job.class, spec, sort, limit);
+    }
+}
@@ -1,7 +1,14 @@
 package vn.hoidanit.jobhunter.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import vn.hoidanit.jobhunter.domain.Resume;
@@ -9,7 +16,7 @@ import vn.hoidanit.jobhunter.domain.User;
 
 @Repository
 public interface ResumeRepository extends JpaRepository<Resume, Long>,
-                JpaSpecificationExecutor<Resume> {
+                JpaSpecificationExecutor<Resume>, ResumeRepositoryCustom {
 
         boolean existsByJobId(Long jobId);
 
@@ -19,4 +26,23 @@ public interface ResumeRepository extends JpaRepository<Resume, Long>,
 
         java.util.List<Resume> findByUser(User user);
 
+        /**
+         * Load resume kèm user, job, job.company và userCv trong một query
+         */
+        @EntityGraph(attributePaths = { "user", "job", "job.company", "userCv" })
+        @Query("SELECT r FROM Resume r WHERE r.id IN :ids")
+        java.util.List<Resume> findByIdsWithRelations(@Param("ids") java.util.List<Long> ids);
+
+        /**
+         * Phân trang 2 bước: lấy ID của trang trong database rồi load quan hệ cho các ID đó
+         */
+        default Page<Resume> findPageWithRelations(Specification<Resume> spec, Pageable pageable) {
+                Page<Long> pageIds = findIds(spec, pageable);
+                java.util.List<Resume> resumes = pageIds.isEmpty()
+                                ? new java.util.ArrayList<>()
+                                : SpecificationIdPaging.inOrder(pageIds.getContent(),
+                                                findByIdsWithRelations(pageIds.getContent()), Resume::getId);
+                return new PageImpl<>(resumes, pageable, pageIds.getTotalElements());
+        }
+
 }
@@ -0,0 +1,15 @@
+package vn.hoidanit.jobhunter.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import vn.hoidanit.jobhunter.domain.Resume;
+
+public interface ResumeRepositoryCustom {
+
+        /**
+         * Chỉ lấy ID của các resume thuộc trang hiện tại (kèm count)
+         */
+        Page<Long> findIds(Specification<Resume> spec, Pageable pageable);
+}
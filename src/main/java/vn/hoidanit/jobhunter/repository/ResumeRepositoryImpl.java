@@ -0,0 +1,20 @@
+package vn.hoidanit.jobhunter.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import vn.hoidanit.jobhunter.domain.Resume;
+
+public class ResumeRepositoryImpl implements ResumeRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<Long> findIds(Specification<Resume> spec, Pageable pageable) {
+        return SpecificationIdPaging.findIds(this.entityManager, Resume.class, spec, pageable);
+    }
+}
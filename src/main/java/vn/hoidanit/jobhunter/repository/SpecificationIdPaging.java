@@ -0,0 +1,134 @@
+package vn.hoidanit.jobhunter.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+/**
+ * Phân trang 2 bước cho Specification: bước 1 chỉ lấy ID của trang hiện tại (kèm count)
+ * bằng LIMIT/OFFSET trong database, bước 2 load entity + EntityGraph theo các ID đó.
+ * Tránh việc Hibernate phân trang trong bộ nhớ khi fetch join collection (HHH000104).
+ */
+final class SpecificationIdPaging {
+
+    private static final String ID = "id";
+
+    private SpecificationIdPaging() {
+    }
+
+    static <T> Page<Long> findIds(EntityManager entityManager, Class<T> domainClass,
+            Specification<T> spec, Pageable pageable) {
+        List<Long> ids = pageable.isPaged()
+                ? selectIds(entityManager, domainClass, spec, pageable.getSort(),
+                        (int) pageable.getOffset(), pageable.getPageSize())
+                : selectIds(entityManager, domainClass, spec, pageable.getSort(), 0, -1);
+
+        return PageableExecutionUtils.getPage(ids, pageable, () -> count(entityManager, domainClass, spec));
+    }
+
+    /**
+     * Chỉ lấy tối đa limit ID theo sort, không count (dùng cho phân trang keyset)
+     */
+    static <T> List<Long> findIds(EntityManager entityManager, Class<T> domainClass,
+            Specification<T> spec, Sort sort, int limit) {
+        return selectIds(entityManager, domainClass, spec, sort, 0, limit);
+    }
+
+    private static <T> List<Long> selectIds(EntityManager entityManager, Class<T> domainClass,
+            Specification<T> spec, Sort sort, int firstResult, int maxResults) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(domainClass);
+
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, cb) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        // Cột ORDER BY phải nằm trong SELECT khi dùng DISTINCT (MySQL)
+        List<Selection<?>> selections = new ArrayList<>();
+        List<Order> orders = new ArrayList<>();
+        selections.add(root.get(ID));
+        boolean hasIdOrder = false;
+        for (Sort.Order order : sort) {
+            Path<?> path = resolvePath(root, order.getProperty());
+            selections.add(path);
+            orders.add(order.isAscending() ? cb.asc(path) : cb.desc(path));
+            hasIdOrder |= ID.equals(order.getProperty());
+        }
+        if (!hasIdOrder) {
+            // Thêm id để thứ tự giữa các trang ổn định
+            orders.add(cb.asc(root.get(ID)));
+        }
+        query.multiselect(selections).distinct(true).orderBy(orders);
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (maxResults >= 0) {
+            typedQuery.setFirstResult(firstResult);
+            typedQuery.setMaxResults(maxResults);
+        }
+        return typedQuery.getResultList().stream()
+                .map(tuple -> tuple.get(0, Long.class))
+                .toList();
+    }
+
+    /**
+     * Sắp xếp các entity đã load theo đúng thứ tự ID của bước 1
+     */
+    static <T> List<T> inOrder(List<Long> ids, Collection<T> entities, Function<T, Long> idOf) {
+        Map<Long, T> byId = entities.stream().collect(Collectors.toMap(idOf, Function.identity(), (a, b) -> a));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private static <T> long count(EntityManager entityManager, Class<T> domainClass, Specification<T> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> root = query.from(domainClass);
+
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, cb) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(cb.countDistinct(root)).distinct(false).orderBy(new ArrayList<>());
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    /**
+     * Sort theo field của quan hệ (vd "job.name") dùng LEFT JOIN: root.get sẽ tạo inner join ngầm
+     * và làm mất các dòng có quan hệ null khỏi trang lẫn lệch với count
+     */
+    private static Path<?> resolvePath(Root<?> root, String property) {
+        String[] parts = property.split("\\.");
+        From<?, ?> from = root;
+        for (int i = 0; i < parts.length - 1; i++) {
+            from = from.join(parts[i], JoinType.LEFT);
+        }
+        return from.get(parts[parts.length - 1]);
+    }
+}
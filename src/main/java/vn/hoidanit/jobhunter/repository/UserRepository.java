@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import vn.hoidanit.jobhunter.domain.Company;
@@ -25,4 +26,13 @@ public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificat
 
     @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.skills WHERE u.email IS NOT NULL AND u.email != ''")
     List<User> findAllWithSkills();
+
+    @Query("SELECT s.id FROM User u JOIN u.skills s WHERE u.email = :email ORDER BY s.id")
+    List<Long> findSkillIdsByEmail(@Param("email") String email);
+
+    /**
+     * Mỗi dòng là [level, salary] của user
+     */
+    @Query("SELECT u.level, u.salary FROM User u WHERE u.email = :email")
+    List<Object[]> findLevelAndSalaryByEmail(@Param("email") String email);
 }
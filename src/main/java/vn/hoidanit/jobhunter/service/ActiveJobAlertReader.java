@@ -0,0 +1,140 @@
+package vn.hoidanit.jobhunter.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import vn.hoidanit.jobhunter.domain.JobAlert;
+import vn.hoidanit.jobhunter.repository.JobAlertRepository;
+
+/**
+ * Duyệt các job alert đang active theo từng chunk thay vì load tất cả vào một List.
+ * - Keyset theo (user_id, id), mỗi chunk tối đa hoidanit.job-alert.chunk-size alert; alert của cùng một user
+ *   luôn nằm trọn trong một chunk. Alert không gắn user được đọc sau cùng, keyset theo id.
+ * - Mỗi chunk đọc trong một transaction riêng (REQUIRES_NEW): user, category qua entity graph, skills nạp
+ *   bằng một query IN cho cả chunk. Persistence context bị bỏ khi transaction kết thúc nên chunk trả về là
+ *   entity detached đã nạp đủ, bộ nhớ chỉ giữ các chunk mà nơi gọi còn tham chiếu.
+ */
+@Service
+public class ActiveJobAlertReader {
+
+    private final JobAlertRepository jobAlertRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${hoidanit.job-alert.chunk-size:500}")
+    private int chunkSize;
+
+    public ActiveJobAlertReader(JobAlertRepository jobAlertRepository, PlatformTransactionManager transactionManager) {
+        this.jobAlertRepository = jobAlertRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Các chunk alert active; mỗi lần duyệt đọc lại từ database
+     */
+    public Iterable<List<JobAlert>> chunks() {
+        return ChunkIterator::new;
+    }
+
+    private Chunk readUserChunk(long lastUserId, long lastId) {
+        int limit = Math.max(1, chunkSize);
+        List<JobAlert> alerts = new ArrayList<>(
+                this.jobAlertRepository.findActiveWithUserAfter(lastUserId, lastId, PageRequest.ofSize(limit)));
+        boolean hasMore = alerts.size() == limit;
+        if (hasMore) {
+            JobAlert last = alerts.get(alerts.size() - 1);
+            alerts.addAll(this.jobAlertRepository.findActiveByUserIdAfter(last.getUser().getId(), last.getId()));
+        }
+        fetchSkills(alerts);
+        return new Chunk(alerts, hasMore);
+    }
+
+    private Chunk readOrphanChunk(long lastId) {
+        int limit = Math.max(1, chunkSize);
+        List<JobAlert> alerts = this.jobAlertRepository.findActiveWithoutUserAfter(lastId, PageRequest.ofSize(limit));
+        fetchSkills(alerts);
+        return new Chunk(alerts, alerts.size() == limit);
+    }
+
+    private void fetchSkills(List<JobAlert> alerts) {
+        if (!alerts.isEmpty()) {
+            this.jobAlertRepository.fetchSkillsByIdIn(alerts.stream().map(JobAlert::getId).toList());
+        }
+    }
+
+    private final class ChunkIterator implements Iterator<List<JobAlert>> {
+        private long lastUserId = 0;
+        private long lastId = 0;
+        private boolean orphans = false;
+        private boolean done = false;
+        private List<JobAlert> next;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public List<JobAlert> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<JobAlert> chunk = next;
+            next = null;
+            return chunk;
+        }
+
+        private List<JobAlert> advance() {
+            while (true) {
+                Chunk chunk = transactionTemplate.execute(status -> orphans
+                        ? readOrphanChunk(lastId)
+                        : readUserChunk(lastUserId, lastId));
+                if (chunk == null || chunk.alerts().isEmpty()) {
+                    if (!switchToOrphans()) {
+                        return null;
+                    }
+                    continue;
+                }
+
+                JobAlert last = chunk.alerts().get(chunk.alerts().size() - 1);
+                lastId = last.getId();
+                if (!orphans) {
+                    lastUserId = last.getUser().getId();
+                }
+                if (!chunk.hasMore()) {
+                    switchToOrphans();
+                }
+                return chunk.alerts();
+            }
+        }
+
+        /**
+         * Hết alert có user thì chuyển sang alert không gắn user; false nếu đã duyệt xong
+         */
+        private boolean switchToOrphans() {
+            if (orphans) {
+                done = true;
+                return false;
+            }
+            orphans = true;
+            lastId = 0;
+            return true;
+        }
+    }
+
+    private record Chunk(List<JobAlert> alerts, boolean hasMore) {
+    }
+}
@@ -0,0 +1,222 @@
+package vn.hoidanit.jobhunter.service;
+
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import vn.hoidanit.jobhunter.util.constant.CircuitStateEnum;
+
+/**
+ * Circuit breaker + bulkhead cho các lời gọi tới AI server (AnalysisDataService).
+ * - Circuit breaker: cửa sổ window-size lời gọi gần nhất; khi có ít nhất minimum-calls lời gọi và tỉ lệ lỗi
+ *   >= failure-rate-threshold % thì OPEN: mọi lời gọi bị từ chối ngay trong open-duration-ms.
+ *   Hết thời gian đó chuyển HALF_OPEN, cho half-open-probes lời gọi thử: tất cả thành công thì CLOSED,
+ *   một lời gọi lỗi thì OPEN lại.
+ * - Bulkhead: tối đa hoidanit.ai-server.bulkhead.max-concurrent lời gọi đồng thời, chờ slot tối đa
+ *   max-wait-ms; không có slot thì lời gọi bị bỏ qua (không tính là lỗi).
+ *
+ * Trạng thái được đưa lên /actuator/health (component aiServerCircuitBreaker, luôn UP để AI server chậm
+ * không làm ứng dụng bị coi là down) và gauge ai.circuit.state (0 CLOSED, 1 OPEN, 2 HALF_OPEN);
+ * lời gọi bị từ chối đếm ở ai.circuit.rejected (tag reason).
+ */
+@Slf4j
+@Component
+public class AiServerCircuitBreaker implements HealthIndicator {
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenProbes;
+    private final Semaphore bulkhead;
+    private final int maxConcurrent;
+    private final long maxWaitMillis;
+
+    private final Counter rejectedOpen;
+    private final Counter rejectedBulkhead;
+
+    // Cửa sổ đếm theo số lời gọi: outcomes[i] = true nếu lời gọi lỗi
+    private final boolean[] outcomes;
+    private int recorded;
+    private int cursor;
+    private int failures;
+
+    private CircuitStateEnum state = CircuitStateEnum.CLOSED;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    public AiServerCircuitBreaker(
+            MeterRegistry meterRegistry,
+            @Value("${hoidanit.ai-server.breaker.window-size:20}") int windowSize,
+            @Value("${hoidanit.ai-server.breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${hoidanit.ai-server.breaker.failure-rate-threshold:50}") int failureRateThreshold,
+            @Value("${hoidanit.ai-server.breaker.open-duration-ms:30000}") long openDurationMillis,
+            @Value("${hoidanit.ai-server.breaker.half-open-probes:3}") int halfOpenProbes,
+            @Value("${hoidanit.ai-server.bulkhead.max-concurrent:8}") int maxConcurrent,
+            @Value("${hoidanit.ai-server.bulkhead.max-wait-ms:50}") long maxWaitMillis) {
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = Math.max(1, Math.min(100, failureRateThreshold));
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, openDurationMillis));
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.bulkhead = new Semaphore(this.maxConcurrent);
+        this.maxWaitMillis = Math.max(0, maxWaitMillis);
+        this.outcomes = new boolean[this.windowSize];
+
+        this.rejectedOpen = rejectedCounter(meterRegistry, "open");
+        this.rejectedBulkhead = rejectedCounter(meterRegistry, "bulkhead");
+        Gauge.builder("ai.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .description("Trạng thái circuit breaker của AI server (0 CLOSED, 1 OPEN, 2 HALF_OPEN)")
+                .register(meterRegistry);
+        Gauge.builder("ai.bulkhead.in_flight", this, breaker -> breaker.maxConcurrent - breaker.bulkhead.availablePermits())
+                .description("Số lời gọi AI server đang chạy")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Xin phép gọi AI server; true thì nơi gọi bắt buộc gọi release(...) khi xong
+     */
+    public boolean tryAcquire() {
+        if (!tryAcquireCircuit()) {
+            this.rejectedOpen.increment();
+            return false;
+        }
+
+        boolean acquired;
+        try {
+            acquired = this.bulkhead.tryAcquire(this.maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            releaseProbe();
+            this.rejectedBulkhead.increment();
+        }
+        return acquired;
+    }
+
+    /**
+     * Kết thúc lời gọi đã được tryAcquire cho phép
+     */
+    public void release(boolean success) {
+        this.bulkhead.release();
+        record(success);
+    }
+
+    /**
+     * Kết thúc lời gọi bị hủy từ phía client (hết deadline): trả slot, không tính thành công hay lỗi
+     */
+    public void releaseCancelled() {
+        this.bulkhead.release();
+        releaseProbe();
+    }
+
+    public synchronized CircuitStateEnum getState() {
+        if (this.state == CircuitStateEnum.OPEN && System.nanoTime() - this.openedAt >= this.openDurationNanos) {
+            return CircuitStateEnum.HALF_OPEN;
+        }
+        return this.state;
+    }
+
+    @Override
+    public Health health() {
+        synchronized (this) {
+            return Health.up()
+                    .withDetail("state", getState())
+                    .withDetail("bufferedCalls", this.recorded)
+                    .withDetail("failedCalls", this.failures)
+                    .withDetail("inFlightCalls", this.maxConcurrent - this.bulkhead.availablePermits())
+                    .build();
+        }
+    }
+
+    private synchronized boolean tryAcquireCircuit() {
+        if (this.state == CircuitStateEnum.OPEN) {
+            if (System.nanoTime() - this.openedAt < this.openDurationNanos) {
+                return false;
+            }
+            transitionTo(CircuitStateEnum.HALF_OPEN);
+        }
+        if (this.state == CircuitStateEnum.HALF_OPEN) {
+            if (this.probesInFlight + this.probeSuccesses >= this.halfOpenProbes) {
+                return false;
+            }
+            this.probesInFlight++;
+        }
+        return true;
+    }
+
+    private synchronized void releaseProbe() {
+        if (this.state == CircuitStateEnum.HALF_OPEN && this.probesInFlight > 0) {
+            this.probesInFlight--;
+        }
+    }
+
+    private synchronized void record(boolean success) {
+        if (this.state == CircuitStateEnum.HALF_OPEN) {
+            this.probesInFlight = Math.max(0, this.probesInFlight - 1);
+            if (!success) {
+                transitionTo(CircuitStateEnum.OPEN);
+            } else if (++this.probeSuccesses >= this.halfOpenProbes) {
+                transitionTo(CircuitStateEnum.CLOSED);
+            }
+            return;
+        }
+        if (this.state == CircuitStateEnum.OPEN) {
+            // Lời gọi bắt đầu trước khi circuit mở, kết quả không còn ý nghĩa
+            return;
+        }
+
+        if (this.recorded == this.windowSize && this.outcomes[this.cursor]) {
+            this.failures--;
+        }
+        this.outcomes[this.cursor] = !success;
+        if (!success) {
+            this.failures++;
+        }
+        this.cursor = (this.cursor + 1) % this.windowSize;
+        this.recorded = Math.min(this.recorded + 1, this.windowSize);
+
+        if (this.recorded >= this.minimumCalls && this.failures * 100 >= this.failureRateThreshold * this.recorded) {
+            transitionTo(CircuitStateEnum.OPEN);
+        }
+    }
+
+    private void transitionTo(CircuitStateEnum next) {
+        if (next == CircuitStateEnum.OPEN) {
+            log.warn("AI server circuit breaker opened ({} of {} recent calls failed, state was {})",
+                    this.failures, this.recorded, this.state);
+            this.openedAt = System.nanoTime();
+        } else {
+            log.info("AI server circuit breaker {} -> {}", this.state, next);
+        }
+        this.state = next;
+        this.probesInFlight = 0;
+        this.probeSuccesses = 0;
+        if (next == CircuitStateEnum.CLOSED) {
+            Arrays.fill(this.outcomes, false);
+            this.recorded = 0;
+            this.cursor = 0;
+            this.failures = 0;
+        }
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("ai.circuit.rejected")
+                .description("Số lời gọi AI server bị từ chối bởi circuit breaker / bulkhead")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -1,28 +1,114 @@
 package vn.hoidanit.jobhunter.service;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.RestClientException;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import vn.hoidanit.jobhunter.config.AsyncConfiguration;
+import vn.hoidanit.jobhunter.util.constant.CircuitStateEnum;
 
+/**
+ * Client gọi AI server lấy matching score.
+ * - RestTemplate chạy trên java.net.http.HttpClient (giữ kết nối keep-alive để dùng lại) với connect timeout
+ *   và read timeout cho từng lời gọi
+ * - Nhiều job được gọi song song trên aiExecutor (có giới hạn), cả lô có một deadline chung:
+ *   job nào chưa xong khi hết hạn bị hủy (interrupt luồng đang gọi HTTP, giải phóng slot của executor
+ *   và bulkhead) và trả về kết quả của các job đã xong
+ * - Scores theo job được cache trong bộ nhớ (LRU, tối đa hoidanit.ai-server.cache.max-size job):
+ *   + tuổi < ttl-ms: trả từ cache
+ *   + ttl-ms <= tuổi < ttl-ms + stale-ms: vẫn trả bản cũ, đồng thời refresh nền trên aiExecutor
+ *   + cũ hơn nữa hoặc chưa có: gọi AI server (job bị hủy do hết deadline thì chưa có trong cache)
+ *   AI server gọi /api/v1/internal/matching-scores/invalidate khi CV hoặc job thay đổi (evictJob / evictUser).
+ *   Số lượt hit / stale / miss ghi vào counter ai.matching_score.cache.requests (tag result).
+ * - Mọi lời gọi đi qua AiServerCircuitBreaker: circuit OPEN hoặc bulkhead đầy thì trả về ngay không có score
+ *   (matchingScore = null ở danh sách resume) thay vì giữ luồng request chờ timeout.
+ */
 @Slf4j
 @Service
 public class AnalysisDataService {
 
-    @Value("${hoidanit.ai-server.url:http://localhost:3005}")
-    private String aiServerUrl;
-
+    private final String aiServerUrl;
     private final RestTemplate restTemplate;
+    private final AsyncTaskExecutor aiExecutor;
+    private final long batchDeadlineMillis;
+    private final AiServerCircuitBreaker circuitBreaker;
+
+    // Cache Map<jobId, scores>, access-order để bỏ job ít dùng nhất khi vượt maxSize
+    private final LinkedHashMap<Long, CachedScores> cache;
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final long ttlNanos;
+    private final long staleNanos;
+
+    private final Counter cacheHits;
+    private final Counter cacheStaleHits;
+    private final Counter cacheMisses;
 
-    public AnalysisDataService() {
-        this.restTemplate = new RestTemplate();
+    public AnalysisDataService(
+            @Qualifier(AsyncConfiguration.AI_EXECUTOR) AsyncTaskExecutor aiExecutor,
+            MeterRegistry meterRegistry,
+            AiServerCircuitBreaker circuitBreaker,
+            @Value("${hoidanit.ai-server.url:http://localhost:3005}") String aiServerUrl,
+            @Value("${hoidanit.ai-server.connect-timeout-ms:1000}") long connectTimeoutMillis,
+            @Value("${hoidanit.ai-server.read-timeout-ms:2000}") long readTimeoutMillis,
+            @Value("${hoidanit.ai-server.batch-deadline-ms:3000}") long batchDeadlineMillis,
+            @Value("${hoidanit.ai-server.cache.max-size:5000}") int cacheMaxSize,
+            @Value("${hoidanit.ai-server.cache.ttl-ms:300000}") long cacheTtlMillis,
+            @Value("${hoidanit.ai-server.cache.stale-ms:600000}") long cacheStaleMillis) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMillis));
+
+        this.aiServerUrl = aiServerUrl;
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.aiExecutor = aiExecutor;
+        this.batchDeadlineMillis = batchDeadlineMillis;
+        this.circuitBreaker = circuitBreaker;
+
+        int maxSize = Math.max(1, cacheMaxSize);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedScores> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, cacheTtlMillis));
+        this.staleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, cacheStaleMillis));
+
+        this.cacheHits = cacheCounter(meterRegistry, "hit");
+        this.cacheStaleHits = cacheCounter(meterRegistry, "stale");
+        this.cacheMisses = cacheCounter(meterRegistry, "miss");
+        Gauge.builder("ai.matching_score.cache.size", this, AnalysisDataService::cacheSize)
+                .description("Số job đang có matching scores trong cache")
+                .register(meterRegistry);
     }
 
     /**
@@ -37,10 +123,11 @@ public class AnalysisDataService {
             String url = String.format("%s/api/v1/analysis_datas?userId=%d&jobId=%d", 
                 aiServerUrl, userId, jobId);
             
-            @SuppressWarnings("unchecked")
-            ResponseEntity<Map<String, Object>> response = restTemplate.getForEntity(url, 
-                (Class<Map<String, Object>>) (Class<?>) Map.class);
-            
+            ResponseEntity<Map<String, Object>> response = getFromAiServer(url);
+            if (response == null) {
+                return null;
+            }
+
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                 Map<String, Object> body = response.getBody();
                 Object successObj = body.get("success");
@@ -71,20 +158,28 @@ public class AnalysisDataService {
      * Trả về Map<userId, matchingScore>
      */
     public Map<Long, Integer> getMatchingScoresByJob(Long jobId) {
-        Map<Long, Integer> result = new HashMap<>();
-        
         if (jobId == null) {
-            return result;
+            return new HashMap<>();
         }
+        return getMatchingScoresByJobs(List.of(jobId)).getOrDefault(jobId, new HashMap<>());
+    }
+
+    /**
+     * Gọi AI server lấy scores của một job và ghi vào cache; null nếu lỗi (không cache lỗi)
+     */
+    private Map<Long, Integer> fetchMatchingScoresByJob(Long jobId) {
+        Map<Long, Integer> result = new HashMap<>();
+        long generation = this.invalidations.get();
 
         try {
             String url = String.format("%s/api/v1/analysis_datas/users?jobId=%d", 
                 aiServerUrl, jobId);
             
-            @SuppressWarnings("unchecked")
-            ResponseEntity<Map<String, Object>> response = restTemplate.getForEntity(url, 
-                (Class<Map<String, Object>>) (Class<?>) Map.class);
-            
+            ResponseEntity<Map<String, Object>> response = getFromAiServer(url);
+            if (response == null) {
+                return null;
+            }
+
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                 Map<String, Object> body = response.getBody();
                 Object successObj = body.get("success");
@@ -108,16 +203,19 @@ public class AnalysisDataService {
             }
         } catch (RestClientException e) {
             log.warn("Failed to fetch matching scores for jobId={}: {}", jobId, e.getMessage());
+            return null;
         } catch (Exception e) {
             log.error("Unexpected error fetching matching scores: {}", e.getMessage());
+            return null;
         }
 
+        putCache(jobId, result, generation);
         return result;
     }
 
     /**
      * Lấy matching scores cho nhiều jobs cùng lúc
-     * Trả về Map<jobId, Map<userId, matchingScore>>
+     * Trả về Map<jobId, Map<userId, matchingScore>>, chỉ gồm các job trả kết quả trước deadline của lô
      */
     public Map<Long, Map<Long, Integer>> getMatchingScoresByJobs(List<Long> jobIds) {
         Map<Long, Map<Long, Integer>> result = new HashMap<>();
@@ -126,15 +224,199 @@ public class AnalysisDataService {
             return result;
         }
 
-        // Fetch cho từng job (có thể optimize sau bằng batch API nếu có)
-        for (Long jobId : jobIds) {
-            Map<Long, Integer> scores = getMatchingScoresByJob(jobId);
-            if (!scores.isEmpty()) {
-                result.put(jobId, scores);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchDeadlineMillis);
+        boolean circuitOpen = this.circuitBreaker.getState() == CircuitStateEnum.OPEN;
+        Map<Long, Future<Map<Long, Integer>>> futures = new LinkedHashMap<>();
+        int rejected = 0;
+        for (Long jobId : new LinkedHashSet<>(jobIds)) {
+            if (jobId == null) {
+                continue;
+            }
+            Map<Long, Integer> cached = getCached(jobId);
+            if (cached != null) {
+                if (!cached.isEmpty()) {
+                    result.put(jobId, cached);
+                }
+                continue;
+            }
+            if (circuitOpen) {
+                // AI server đang lỗi: chỉ trả scores có trong cache, không chờ
+                continue;
+            }
+            // Fetch song song các job chưa có trong cache trên aiExecutor (fetchMatchingScoresByJob không ném lỗi)
+            try {
+                futures.put(jobId, this.aiExecutor.submit(() -> fetchMatchingScoresByJob(jobId)));
+            } catch (RejectedExecutionException e) {
+                // aiExecutor đầy: job này không có score ở lượt này, không gọi trên luồng request
+                rejected++;
+            }
+        }
+        if (rejected > 0) {
+            log.warn("AI executor is saturated, matching scores skipped for {} jobs", rejected);
+        }
+
+        int timedOut = 0;
+        for (Map.Entry<Long, Future<Map<Long, Integer>>> entry : futures.entrySet()) {
+            try {
+                Map<Long, Integer> scores = entry.getValue()
+                        .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (scores != null && !scores.isEmpty()) {
+                    result.put(entry.getKey(), scores);
+                }
+            } catch (TimeoutException e) {
+                // Interrupt luồng đang chờ AI server: JDK HttpClient hủy request, slot bulkhead được trả lại
+                timedOut++;
+                entry.getValue().cancel(true);
+            } catch (ExecutionException e) {
+                log.warn("Failed to fetch matching scores for jobId={}: {}", entry.getKey(), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
             }
         }
+        if (timedOut > 0) {
+            log.warn("Matching scores for {} of {} jobs missed the {} ms deadline, returning partial results",
+                    timedOut, futures.size(), batchDeadlineMillis);
+        }
 
         return result;
     }
+
+    /**
+     * GET tới AI server qua circuit breaker / bulkhead; null nếu lời gọi bị từ chối hoặc bị hủy.
+     * Lỗi 4xx không tính là lỗi của AI server (server vẫn phản hồi bình thường), lời gọi bị hủy do hết
+     * deadline của lô (luồng bị interrupt) không được tính vào circuit breaker.
+     */
+    private ResponseEntity<Map<String, Object>> getFromAiServer(String url) {
+        if (!this.circuitBreaker.tryAcquire()) {
+            return null;
+        }
+        boolean success = false;
+        boolean cancelled = false;
+        try {
+            @SuppressWarnings("unchecked")
+            ResponseEntity<Map<String, Object>> response = restTemplate.getForEntity(url,
+                    (Class<Map<String, Object>>) (Class<?>) Map.class);
+            success = true;
+            return response;
+        } catch (HttpClientErrorException e) {
+            success = true;
+            throw e;
+        } catch (RestClientException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                cancelled = true;
+                return null;
+            }
+            throw e;
+        } finally {
+            if (cancelled) {
+                this.circuitBreaker.releaseCancelled();
+            } else {
+                this.circuitBreaker.release(success);
+            }
+        }
+    }
+
+    /**
+     * Bỏ scores đã cache của một job (job thay đổi hoặc AI server tính lại scores của job)
+     */
+    public void evictJob(Long jobId) {
+        if (jobId == null) {
+            return;
+        }
+        this.invalidations.incrementAndGet();
+        synchronized (this.cache) {
+            this.cache.remove(jobId);
+        }
+    }
+
+    /**
+     * CV của user thay đổi: bỏ các job đang cache score của user, các job còn lại chuyển sang stale
+     * (user có thể vừa có score mới với job đó) để được refresh ở lượt đọc tiếp theo
+     */
+    public void evictUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        this.invalidations.incrementAndGet();
+        long staleAt = System.nanoTime() - this.ttlNanos;
+        synchronized (this.cache) {
+            this.cache.entrySet().removeIf(entry -> entry.getValue().scores().containsKey(userId));
+            this.cache.replaceAll((jobId, cached) -> cached.loadedAt() - staleAt > 0
+                    ? new CachedScores(cached.scores(), staleAt)
+                    : cached);
+        }
+    }
+
+    /**
+     * Scores trong cache của job; null nếu chưa có hoặc đã quá hạn stale (cần gọi AI server)
+     */
+    private Map<Long, Integer> getCached(Long jobId) {
+        CachedScores cached;
+        synchronized (this.cache) {
+            cached = this.cache.get(jobId);
+        }
+        if (cached == null) {
+            this.cacheMisses.increment();
+            return null;
+        }
+
+        long age = System.nanoTime() - cached.loadedAt();
+        if (age < this.ttlNanos) {
+            this.cacheHits.increment();
+            return cached.scores();
+        }
+        if (age < this.ttlNanos + this.staleNanos) {
+            this.cacheStaleHits.increment();
+            refreshAsync(jobId);
+            return cached.scores();
+        }
+        this.cacheMisses.increment();
+        return null;
+    }
+
+    private void refreshAsync(Long jobId) {
+        // Mỗi job chỉ refresh một lần tại một thời điểm
+        if (!this.refreshing.add(jobId)) {
+            return;
+        }
+        try {
+            this.aiExecutor.execute(() -> {
+                try {
+                    fetchMatchingScoresByJob(jobId);
+                } finally {
+                    this.refreshing.remove(jobId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.refreshing.remove(jobId);
+        }
+    }
+
+    private void putCache(Long jobId, Map<Long, Integer> scores, long generation) {
+        // Có invalidation trong lúc đang gọi AI server thì kết quả có thể đã cũ: lưu ở trạng thái stale
+        long loadedAt = this.invalidations.get() == generation
+                ? System.nanoTime()
+                : System.nanoTime() - this.ttlNanos;
+        synchronized (this.cache) {
+            this.cache.put(jobId, new CachedScores(Map.copyOf(scores), loadedAt));
+        }
+    }
+
+    private int cacheSize() {
+        synchronized (this.cache) {
+            return this.cache.size();
+        }
+    }
+
+    private static Counter cacheCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ai.matching_score.cache.requests")
+                .description("Số lượt đọc matching scores theo job từ cache")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record CachedScores(Map<Long, Integer> scores, long loadedAt) {
+    }
 }
 
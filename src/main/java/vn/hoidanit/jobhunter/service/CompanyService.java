@@ -12,6 +12,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import lombok.extern.slf4j.Slf4j;
+
 import vn.hoidanit.jobhunter.domain.Company;
 import vn.hoidanit.jobhunter.domain.Role;
 import vn.hoidanit.jobhunter.domain.User;
@@ -24,6 +26,7 @@ import vn.hoidanit.jobhunter.repository.UserRepository;
 import vn.hoidanit.jobhunter.util.SecurityUtil;
 import vn.hoidanit.jobhunter.util.error.IdInvalidException;
 
+@Slf4j
 @Service
 public class CompanyService {
 
@@ -34,17 +37,17 @@ public class CompanyService {
     private final CompanyRepository companyRepository;
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
-    private final EmailService emailService;
+    private final EmailOutboxService emailOutboxService;
 
     public CompanyService(
             CompanyRepository companyRepository,
             UserRepository userRepository,
             RoleRepository roleRepository,
-            EmailService emailService) {
+            EmailOutboxService emailOutboxService) {
         this.companyRepository = companyRepository;
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
-        this.emailService = emailService;
+        this.emailOutboxService = emailOutboxService;
     }
 
     public Company handleCreateCompany(Company c) {
@@ -224,7 +227,6 @@ public class CompanyService {
 
         Role targetRole = this.getRoleOrThrow("APPROVED".equals(decision) ? ROLE_HR : ROLE_HR_PENDING);
 
-        // Update roles and send emails in one loop
         List<User> usersToPersist = new ArrayList<>();
         for (User hrUser : hrUsers) {
             String currentRoleName = hrUser.getRole() != null ? hrUser.getRole().getName() : "";
@@ -232,12 +234,14 @@ public class CompanyService {
                 hrUser.setRole(targetRole);
                 usersToPersist.add(hrUser);
             }
-            // Send email asynchronously to avoid blocking
-            this.sendReviewEmail(hrUser, company, decision, request.getReason());
         }
         if (!usersToPersist.isEmpty()) {
             this.userRepository.saveAll(usersToPersist);
         }
+        // Email vào outbox cùng transaction, gửi SMTP sau khi commit
+        for (User hrUser : hrUsers) {
+            this.sendReviewEmail(hrUser, company, decision, request.getReason());
+        }
 
         ResCompanyReviewDTO response = new ResCompanyReviewDTO();
         response.setCompanyId(company.getId());
@@ -271,7 +275,6 @@ public class CompanyService {
         return role;
     }
 
-    @org.springframework.scheduling.annotation.Async
     private void sendReviewEmail(User hrUser, Company company, String decision, String reason) {
         if (hrUser == null || !StringUtils.hasText(hrUser.getEmail())) {
             return;
@@ -297,10 +300,10 @@ public class CompanyService {
             }
             content.append("\n\nTrân trọng,\nJobHunter Team");
 
-            this.emailService.sendEmailSync(hrUser.getEmail(), subject, content.toString(), false, false);
+            this.emailOutboxService.enqueue(hrUser.getEmail(), subject, content.toString(), false);
         } catch (Exception e) {
             // Log error but don't fail the review operation
-            System.err.println("Failed to send review email to " + hrUser.getEmail() + ": " + e.getMessage());
+            log.error("Failed to queue review email to {}: {}", hrUser.getEmail(), e.getMessage());
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,250 @@
+package vn.hoidanit.jobhunter.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import vn.hoidanit.jobhunter.config.AsyncConfiguration;
+import vn.hoidanit.jobhunter.domain.EmailOutbox;
+import vn.hoidanit.jobhunter.repository.EmailOutboxRepository;
+import vn.hoidanit.jobhunter.util.constant.EmailStatusEnum;
+
+/**
+ * Gửi email trong outbox.
+ * - Mỗi worker lấy một lô (SELECT ... FOR UPDATE SKIP LOCKED), gửi cả lô qua một kết nối SMTP
+ *   bằng JavaMailSender.send(MimeMessage...)
+ * - Lỗi thì thử lại với backoff tăng dần, quá maxAttempts thì chuyển sang DEAD
+ * - Giới hạn số email mỗi phút theo domain người nhận; email vượt giới hạn được hẹn lại, không tính là lỗi
+ * - Worker chạy trên mailExecutor; executor đầy thì email vẫn nằm trong outbox chờ lượt sau
+ */
+@Slf4j
+@Service
+public class EmailDispatcher {
+
+    private static final Duration BASE_BACKOFF = Duration.ofSeconds(30);
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+    // Email ở trạng thái SENDING lâu hơn mức này coi như worker đã chết, được lấy lại
+    private static final Duration STALE_LOCK = Duration.ofMinutes(10);
+    private static final Duration SENT_RETENTION = Duration.ofDays(7);
+    private static final long RATE_WINDOW_MILLIS = 60_000;
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final JavaMailSender javaMailSender;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<String, RateWindow> rateWindows = new ConcurrentHashMap<>();
+    private final AsyncTaskExecutor mailExecutor;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final int domainRatePerMinute;
+    private final int workerCount;
+
+    public EmailDispatcher(
+            EmailOutboxRepository emailOutboxRepository,
+            JavaMailSender javaMailSender,
+            PlatformTransactionManager transactionManager,
+            @Qualifier(AsyncConfiguration.MAIL_EXECUTOR) AsyncTaskExecutor mailExecutor,
+            @Value("${hoidanit.mail.outbox.workers:2}") int workerCount,
+            @Value("${hoidanit.mail.outbox.batch-size:50}") int batchSize,
+            @Value("${hoidanit.mail.outbox.max-attempts:6}") int maxAttempts,
+            @Value("${hoidanit.mail.outbox.domain-rate-per-minute:120}") int domainRatePerMinute) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.javaMailSender = javaMailSender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mailExecutor = mailExecutor;
+        this.workerCount = Math.max(1, workerCount);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.domainRatePerMinute = domainRatePerMinute;
+    }
+
+    /**
+     * Các worker lấy và gửi từng lô cho tới khi outbox không còn email đến hạn
+     */
+    @Scheduled(fixedDelayString = "${hoidanit.mail.outbox.poll-interval-ms:2000}")
+    public void dispatch() {
+        List<Future<?>> running = new ArrayList<>(workerCount);
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                running.add(this.mailExecutor.submit(this::drain));
+            }
+        } catch (TaskRejectedException e) {
+            // Chưa lấy email nào ra khỏi outbox nên không mất gì, lượt sau gửi tiếp
+            log.warn("Mail executor is saturated, {} outbox workers started", running.size());
+        }
+        for (Future<?> future : running) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Email outbox worker failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(cron = "0 30 0 * * ?")
+    public void purgeSent() {
+        int deleted = this.emailOutboxRepository.deleteByStatusAndSentAtBefore(
+                EmailStatusEnum.SENT, Instant.now().minus(SENT_RETENTION));
+        if (deleted > 0) {
+            log.info("Purged {} sent emails from outbox", deleted);
+        }
+    }
+
+    private void drain() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<EmailOutbox> batch = claim();
+            if (batch.isEmpty()) {
+                return;
+            }
+            deliver(batch);
+            if (batch.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private List<EmailOutbox> claim() {
+        List<EmailOutbox> batch = this.transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<EmailOutbox> rows = this.emailOutboxRepository.claimBatch(now, now.minus(STALE_LOCK), batchSize);
+            rows.forEach(row -> {
+                row.setStatus(EmailStatusEnum.SENDING);
+                row.setLockedAt(now);
+            });
+            return rows;
+        });
+        return batch != null ? batch : List.of();
+    }
+
+    private void deliver(List<EmailOutbox> batch) {
+        Instant now = Instant.now();
+        Map<MimeMessage, EmailOutbox> messages = new IdentityHashMap<>();
+        for (EmailOutbox email : batch) {
+            long retryAfter = acquire(email.getRecipientDomain());
+            if (retryAfter > 0) {
+                // Vượt giới hạn của domain: hẹn lại, không tính là một lần thử
+                email.setStatus(EmailStatusEnum.PENDING);
+                email.setNextAttemptAt(now.plusMillis(retryAfter));
+                email.setLockedAt(null);
+                continue;
+            }
+            try {
+                messages.put(toMimeMessage(email), email);
+            } catch (MessagingException e) {
+                markFailed(email, e, now);
+            }
+        }
+
+        if (!messages.isEmpty()) {
+            Map<Object, Exception> failures = Map.of();
+            try {
+                this.javaMailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                failures = e.getFailedMessages();
+                if (failures.isEmpty()) {
+                    // Lỗi kết nối / xác thực: cả lô thất bại
+                    failures = new IdentityHashMap<>();
+                    for (MimeMessage message : messages.keySet()) {
+                        failures.put(message, e);
+                    }
+                }
+            } catch (MailException e) {
+                failures = new IdentityHashMap<>();
+                for (MimeMessage message : messages.keySet()) {
+                    failures.put(message, e);
+                }
+            }
+
+            Instant finishedAt = Instant.now();
+            for (Map.Entry<MimeMessage, EmailOutbox> entry : messages.entrySet()) {
+                Exception failure = failures.get(entry.getKey());
+                EmailOutbox email = entry.getValue();
+                if (failure == null) {
+                    email.setStatus(EmailStatusEnum.SENT);
+                    email.setSentAt(finishedAt);
+                    email.setLockedAt(null);
+                    email.setLastError(null);
+                } else {
+                    markFailed(email, failure, finishedAt);
+                }
+            }
+        }
+
+        this.emailOutboxRepository.saveAll(batch);
+    }
+
+    private MimeMessage toMimeMessage(EmailOutbox email) throws MessagingException {
+        MimeMessage mimeMessage = this.javaMailSender.createMimeMessage();
+        MimeMessageHelper message = new MimeMessageHelper(mimeMessage, false, StandardCharsets.UTF_8.name());
+        message.setTo(email.getRecipient());
+        message.setSubject(email.getSubject());
+        message.setText(email.getContent(), email.isHtml());
+        return mimeMessage;
+    }
+
+    private void markFailed(EmailOutbox email, Exception error, Instant now) {
+        int attempts = email.getAttempts() + 1;
+        email.setAttempts(attempts);
+        email.setLockedAt(null);
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        email.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+        if (attempts >= maxAttempts) {
+            email.setStatus(EmailStatusEnum.DEAD);
+            log.warn("Email {} to {} moved to dead letter after {} attempts: {}",
+                    email.getId(), email.getRecipient(), attempts, message);
+            return;
+        }
+        long backoffSeconds = Math.min(BASE_BACKOFF.getSeconds() << Math.min(attempts - 1, 20), MAX_BACKOFF.getSeconds());
+        email.setStatus(EmailStatusEnum.PENDING);
+        email.setNextAttemptAt(now.plusSeconds(backoffSeconds));
+    }
+
+    /**
+     * Lấy một lượt gửi cho domain trong cửa sổ 1 phút hiện tại.
+     * Trả về 0 nếu được gửi, ngược lại số ms cần chờ tới cửa sổ tiếp theo.
+     */
+    private long acquire(String domain) {
+        if (domainRatePerMinute <= 0) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        RateWindow window = rateWindows.compute(domain != null ? domain : "", (key, current) ->
+                current == null || now - current.startedAt() >= RATE_WINDOW_MILLIS
+                        ? new RateWindow(now, new AtomicInteger())
+                        : current);
+        if (window.sent().incrementAndGet() <= domainRatePerMinute) {
+            return 0;
+        }
+        return Math.max(1, window.startedAt() + RATE_WINDOW_MILLIS - now);
+    }
+
+    private record RateWindow(long startedAt, AtomicInteger sent) {
+    }
+}
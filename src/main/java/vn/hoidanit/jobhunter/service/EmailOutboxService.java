@@ -0,0 +1,55 @@
+package vn.hoidanit.jobhunter.service;
+
+import java.util.Locale;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.thymeleaf.exceptions.TemplateEngineException;
+
+import vn.hoidanit.jobhunter.domain.EmailOutbox;
+import vn.hoidanit.jobhunter.repository.EmailOutboxRepository;
+
+/**
+ * Đưa email vào outbox thay vì gửi SMTP trực tiếp. Ghi trong transaction của nơi gọi
+ * (nếu có) nên email chỉ được gửi khi dữ liệu liên quan đã commit, và biến mất nếu nơi gọi rollback;
+ * EmailDispatcher gửi sau. Nơi gọi nên đưa email vào outbox sau khi đã ghi xong dữ liệu liên quan.
+ */
+@Service
+public class EmailOutboxService {
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailService emailService;
+
+    public EmailOutboxService(
+            EmailOutboxRepository emailOutboxRepository,
+            EmailService emailService) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailService = emailService;
+    }
+
+    @Transactional
+    public EmailOutbox enqueue(String to, String subject, String content, boolean isHtml) {
+        EmailOutbox email = new EmailOutbox();
+        email.setRecipient(to.trim());
+        email.setRecipientDomain(domainOf(to));
+        email.setSubject(subject);
+        email.setContent(content);
+        email.setHtml(isHtml);
+        return this.emailOutboxRepository.save(email);
+    }
+
+    /**
+     * Render template Thymeleaf (biến "name" và "jobs") rồi đưa vào outbox.
+     * Lỗi render xảy ra trước khi ghi gì nên không đánh dấu rollback transaction của nơi gọi.
+     */
+    @Transactional(noRollbackFor = TemplateEngineException.class)
+    public EmailOutbox enqueueTemplate(String to, String subject, String templateName, String username, Object value) {
+        String content = this.emailService.renderTemplate(templateName, username, value);
+        return enqueue(to, subject, content, true);
+    }
+
+    static String domainOf(String email) {
+        int at = email.lastIndexOf('@');
+        return at >= 0 ? email.substring(at + 1).trim().toLowerCase(Locale.ROOT) : "";
+    }
+}
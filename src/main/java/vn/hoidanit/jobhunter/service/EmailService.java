@@ -11,7 +11,10 @@ import org.thymeleaf.spring6.SpringTemplateEngine;
 
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import vn.hoidanit.jobhunter.config.AsyncConfiguration;
 
+@Slf4j
 @Service
 public class EmailService {
 
@@ -33,12 +36,12 @@ public class EmailService {
             message.setText(content, isHtml);
             this.javaMailSender.send(mimeMessage);
         } catch (MailException | MessagingException e) {
-            System.err.println("ERROR SEND EMAIL to " + to + ": " + e.getMessage());
+            log.error("Failed to send email to {}: {}", to, e.getMessage());
             throw new RuntimeException("Failed to send email", e);
         }
     }
 
-    @Async
+    @Async(AsyncConfiguration.MAIL_EXECUTOR)
     public void sendEmailFromTemplateSync(
             String to,
             String subject,
@@ -46,12 +49,15 @@ public class EmailService {
             String username,
             Object value) {
 
+        String content = renderTemplate(templateName, username, value);
+        this.sendEmailSync(to, subject, content, false, true);
+    }
+
+    public String renderTemplate(String templateName, String username, Object value) {
         Context context = new Context();
         context.setVariable("name", username);
         context.setVariable("jobs", value);
-
-        String content = templateEngine.process(templateName, context);
-        this.sendEmailSync(to, subject, content, false, true);
+        return templateEngine.process(templateName, context);
     }
 
 }
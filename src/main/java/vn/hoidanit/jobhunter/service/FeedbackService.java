@@ -1,10 +1,10 @@
 package vn.hoidanit.jobhunter.service;
 
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import lombok.extern.slf4j.Slf4j;
 import vn.hoidanit.jobhunter.domain.Feedback;
 import vn.hoidanit.jobhunter.domain.Job;
 import vn.hoidanit.jobhunter.domain.Company;
@@ -20,25 +20,26 @@ import vn.hoidanit.jobhunter.util.error.IdInvalidException;
 import java.util.List;
 import java.util.Optional;
 
+@Slf4j
 @Service
 public class FeedbackService {
     private final FeedbackRepository feedbackRepository;
     private final UserRepository userRepository;
     private final JobRepository jobRepository;
     private final CompanyRepository companyRepository;
-    private final EmailService emailService;
+    private final EmailOutboxService emailOutboxService;
 
     public FeedbackService(
             FeedbackRepository feedbackRepository,
             UserRepository userRepository,
             JobRepository jobRepository,
             CompanyRepository companyRepository,
-            EmailService emailService) {
+            EmailOutboxService emailOutboxService) {
         this.feedbackRepository = feedbackRepository;
         this.userRepository = userRepository;
         this.jobRepository = jobRepository;
         this.companyRepository = companyRepository;
-        this.emailService = emailService;
+        this.emailOutboxService = emailOutboxService;
     }
 
     /**
@@ -78,7 +79,7 @@ public class FeedbackService {
 
         Feedback savedFeedback = this.feedbackRepository.save(feedback);
 
-        // Gửi email cho HR nếu feedback về job (async để không block)
+        // Gửi email cho HR nếu feedback về job (qua outbox)
         if (job != null && company != null) {
             sendFeedbackEmailToHR(savedFeedback, job, company, user);
         }
@@ -106,9 +107,8 @@ public class FeedbackService {
     }
 
     /**
-     * Gửi email cho HR về feedback (async để không block transaction)
+     * Đưa email thông báo feedback cho HR vào outbox (không chờ SMTP)
      */
-    @Async
     private void sendFeedbackEmailToHR(Feedback feedback, Job job, Company company, User candidate) {
         try {
             // Lấy danh sách HR của công ty
@@ -135,10 +135,10 @@ public class FeedbackService {
                 String emailContent = buildFeedbackEmailContent(
                         hrName, candidateName, candidateEmail, jobName, companyName, rating, content);
 
-                this.emailService.sendEmailSync(hrUser.getEmail(), emailSubject, emailContent, false, true);
+                this.emailOutboxService.enqueue(hrUser.getEmail(), emailSubject, emailContent, true);
             }
         } catch (Exception e) {
-            System.err.println("ERROR sending feedback email to HR: " + e.getMessage());
+            log.error("Failed to queue feedback email to HR: {}", e.getMessage());
             // Không throw exception để không ảnh hưởng đến việc lưu feedback
         }
     }
@@ -0,0 +1,339 @@
+package vn.hoidanit.jobhunter.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+import vn.hoidanit.jobhunter.domain.Job;
+import vn.hoidanit.jobhunter.domain.JobAlert;
+import vn.hoidanit.jobhunter.domain.Skill;
+import vn.hoidanit.jobhunter.repository.JobAlertRepository;
+import vn.hoidanit.jobhunter.util.LocationMatcher;
+import vn.hoidanit.jobhunter.util.constant.LevelEnum;
+
+/**
+ * Index ngược của các job alert đang active, dùng khi có job mới: thay vì duyệt mọi alert,
+ * chỉ lấy các alert có thể khớp với job.
+ * Mỗi alert được đặt vào đúng một nhóm theo tiêu chí bắt buộc chọn lọc nhất:
+ * skill (job phải có ít nhất một skill của alert) > location có trong từ điển > category > level.
+ * Alert chỉ có tiêu chí lương hoặc location ngoài từ điển nằm trong danh sách quét,
+ * alert không có tiêu chí nào nằm trong danh sách match-all.
+ * Ứng viên vẫn phải qua JobAlertService.isJobMatchingAlert.
+ */
+@Slf4j
+@Service
+public class JobAlertIndex {
+
+    private final JobAlertRepository jobAlertRepository;
+    private final ActiveJobAlertReader activeJobAlertReader;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, JobAlert> alertsById = new LinkedHashMap<>();
+    private final Map<Long, Set<Long>> alertsBySkill = new HashMap<>();
+    private final Map<String, Set<Long>> alertsByLocation = new HashMap<>();
+    private final Map<Long, Set<Long>> alertsByCategory = new HashMap<>();
+    private final Map<LevelEnum, Set<Long>> alertsByLevel = new HashMap<>();
+    private final Set<Long> scanAlerts = new HashSet<>();
+    private final Set<Long> matchAllAlerts = new HashSet<>();
+
+    private volatile boolean ready = false;
+
+    // Khác null khi rebuild đang chạy: các alert được refresh / remove trong lúc đó (ghi trong write lock)
+    private Set<Long> changedDuringRebuild;
+
+    public JobAlertIndex(JobAlertRepository jobAlertRepository, ActiveJobAlertReader activeJobAlertReader) {
+        this.jobAlertRepository = jobAlertRepository;
+        this.activeJobAlertReader = activeJobAlertReader;
+    }
+
+    /**
+     * Nạp toàn bộ alert active vào index. Alert được refresh / remove trong lúc đang nạp (dữ liệu nạp
+     * có thể đã cũ, hoặc thay đổi đã được ghi rồi bị clear() xóa mất) được ghi lại và nạp lại sau khi thay index.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            List<JobAlert> alerts = new ArrayList<>();
+            for (List<JobAlert> chunk : this.activeJobAlertReader.chunks()) {
+                alerts.addAll(chunk);
+            }
+
+            Set<Long> replay;
+            lock.writeLock().lock();
+            try {
+                clear();
+                alerts.forEach(this::addLocked);
+                ready = true;
+                replay = takeChangedDuringRebuild();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            while (!replay.isEmpty()) {
+                Map<Long, JobAlert> reloaded = new HashMap<>();
+                for (Long alertId : replay) {
+                    reloaded.put(alertId, this.jobAlertRepository.findByIdWithSkills(alertId).orElse(null));
+                }
+                lock.writeLock().lock();
+                try {
+                    reloaded.forEach(this::applyLocked);
+                    replay = takeChangedDuringRebuild();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            log.info("Job alert index loaded {} alerts in {} ms", alerts.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Failed to build job alert index, notifications fall back to database: {}", e.getMessage());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Lấy các alert cần nạp lại; hết alert thì kết thúc việc ghi lại (rebuild coi như xong)
+    private Set<Long> takeChangedDuringRebuild() {
+        Set<Long> changed = changedDuringRebuild;
+        changedDuringRebuild = changed.isEmpty() ? null : new HashSet<>();
+        return changed;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Các alert có thể khớp với job (chưa kiểm tra đầy đủ tiêu chí)
+     */
+    public List<JobAlert> candidatesFor(Job job) {
+        Set<Long> ids = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            if (job.getSkills() != null) {
+                for (Skill skill : job.getSkills()) {
+                    addAll(ids, alertsBySkill.get(skill.getId()));
+                }
+            }
+            if (job.getLocation() != null && !job.getLocation().isBlank()) {
+                for (String location : LocationMatcher.matchingCanonicalNames(job.getLocation())) {
+                    addAll(ids, alertsByLocation.get(location));
+                }
+            }
+            if (job.getCategory() != null) {
+                addAll(ids, alertsByCategory.get(job.getCategory().getId()));
+            }
+            if (job.getLevel() != null) {
+                addAll(ids, alertsByLevel.get(job.getLevel()));
+            }
+            ids.addAll(scanAlerts);
+            ids.addAll(matchAllAlerts);
+
+            List<JobAlert> candidates = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                candidates.add(alertsById.get(id));
+            }
+            return candidates;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Nạp lại alert từ database sau khi transaction hiện tại commit
+     */
+    public void refresh(long alertId) {
+        runAfterCommit(() -> {
+            JobAlert alert = this.jobAlertRepository.findByIdWithSkills(alertId).orElse(null);
+            lock.writeLock().lock();
+            try {
+                if (changedDuringRebuild != null) {
+                    changedDuringRebuild.add(alertId);
+                }
+                applyLocked(alertId, alert);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Xóa alert khỏi index sau khi transaction hiện tại commit
+     */
+    public void remove(long alertId) {
+        runAfterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                if (changedDuringRebuild != null) {
+                    changedDuringRebuild.add(alertId);
+                }
+                removeLocked(alertId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Ghi dữ liệu vừa nạp của alert, alert không còn trong database hoặc đã tắt bị xóa khỏi index
+    private void applyLocked(long alertId, JobAlert alert) {
+        removeLocked(alertId);
+        if (alert != null && alert.isActive()) {
+            addLocked(alert);
+        }
+    }
+
+    private void clear() {
+        alertsById.clear();
+        alertsBySkill.clear();
+        alertsByLocation.clear();
+        alertsByCategory.clear();
+        alertsByLevel.clear();
+        scanAlerts.clear();
+        matchAllAlerts.clear();
+    }
+
+    private void addLocked(JobAlert alert) {
+        long id = alert.getId();
+        alertsById.put(id, alert);
+
+        if (alert.getSkills() != null && !alert.getSkills().isEmpty()) {
+            for (Skill skill : alert.getSkills()) {
+                alertsBySkill.computeIfAbsent(skill.getId(), k -> new HashSet<>()).add(id);
+            }
+            return;
+        }
+        String location = dictionaryLocationKey(alert.getLocation());
+        if (location != null) {
+            alertsByLocation.computeIfAbsent(location, k -> new HashSet<>()).add(id);
+            return;
+        }
+        if (alert.getCategory() != null) {
+            alertsByCategory.computeIfAbsent(alert.getCategory().getId(), k -> new HashSet<>()).add(id);
+            return;
+        }
+        LevelEnum level = parseLevel(alert.getExperience());
+        if (level != null) {
+            alertsByLevel.computeIfAbsent(level, k -> new HashSet<>()).add(id);
+            return;
+        }
+        if (hasAnyCriteria(alert)) {
+            scanAlerts.add(id);
+        } else {
+            matchAllAlerts.add(id);
+        }
+    }
+
+    private void removeLocked(long alertId) {
+        JobAlert alert = alertsById.remove(alertId);
+        if (alert == null) {
+            return;
+        }
+        if (alert.getSkills() != null) {
+            for (Skill skill : alert.getSkills()) {
+                removeFrom(alertsBySkill, skill.getId(), alertId);
+            }
+        }
+        String location = dictionaryLocationKey(alert.getLocation());
+        if (location != null) {
+            removeFrom(alertsByLocation, location, alertId);
+        }
+        if (alert.getCategory() != null) {
+            removeFrom(alertsByCategory, alert.getCategory().getId(), alertId);
+        }
+        LevelEnum level = parseLevel(alert.getExperience());
+        if (level != null) {
+            removeFrom(alertsByLevel, level, alertId);
+        }
+        scanAlerts.remove(alertId);
+        matchAllAlerts.remove(alertId);
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Long>> buckets, K key, long alertId) {
+        Set<Long> bucket = buckets.get(key);
+        if (bucket != null) {
+            bucket.remove(alertId);
+            if (bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    private static void addAll(Set<Long> target, Collection<Long> source) {
+        if (source != null) {
+            target.addAll(source);
+        }
+    }
+
+    /**
+     * Cùng điều kiện với JobAlertService.hasAnyCriteria
+     */
+    private static boolean hasAnyCriteria(JobAlert alert) {
+        return (alert.getLocation() != null && !alert.getLocation().isBlank())
+                || alert.getCategory() != null
+                || (alert.getExperience() != null && !alert.getExperience().isBlank())
+                || alert.getDesiredSalary() != null
+                || alert.getMinSalary() != null
+                || alert.getMaxSalary() != null
+                || (alert.getSkills() != null && !alert.getSkills().isEmpty());
+    }
+
+    /**
+     * Location của alert chỉ dùng làm key khi có trong từ điển alias: khi đó LocationMatcher
+     * chỉ khớp theo nhóm alias, không có so khớp gần đúng
+     */
+    private static String dictionaryLocationKey(String location) {
+        if (location == null || location.isBlank() || !LocationMatcher.isKnownLocation(location)) {
+            return null;
+        }
+        return LocationMatcher.getCanonicalName(location);
+    }
+
+    private static LevelEnum parseLevel(String experience) {
+        if (experience == null || experience.isBlank()) {
+            return null;
+        }
+        try {
+            return LevelEnum.valueOf(experience.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
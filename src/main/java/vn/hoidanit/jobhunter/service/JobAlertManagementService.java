@@ -30,18 +30,21 @@ public class JobAlertManagementService {
     private final CategoryRepository categoryRepository;
     private final SkillRepository skillRepository;
     private final JobAlertService jobAlertService;
+    private final JobAlertIndex jobAlertIndex;
 
     public JobAlertManagementService(
             JobAlertRepository jobAlertRepository,
             UserRepository userRepository,
             CategoryRepository categoryRepository,
             SkillRepository skillRepository,
-            JobAlertService jobAlertService) {
+            JobAlertService jobAlertService,
+            JobAlertIndex jobAlertIndex) {
         this.jobAlertRepository = jobAlertRepository;
         this.userRepository = userRepository;
         this.categoryRepository = categoryRepository;
         this.skillRepository = skillRepository;
         this.jobAlertService = jobAlertService;
+        this.jobAlertIndex = jobAlertIndex;
     }
 
     private User getCurrentUser() throws IdInvalidException {
@@ -82,6 +85,7 @@ public class JobAlertManagementService {
         setAlertFields(alert, dto);
 
         JobAlert saved = this.jobAlertRepository.save(alert);
+        this.jobAlertIndex.refresh(saved.getId());
         
         // Nếu tạo mới với active = true, gửi email ngay
         if (saved.isActive()) {
@@ -118,6 +122,7 @@ public class JobAlertManagementService {
         setAlertFields(alert, dto);
 
         JobAlert saved = this.jobAlertRepository.save(alert);
+        this.jobAlertIndex.refresh(saved.getId());
         
         // Nếu alert đang active sau khi cập nhật, gửi email với tiêu chí mới
         if (saved.isActive()) {
@@ -139,6 +144,7 @@ public class JobAlertManagementService {
         }
 
         this.jobAlertRepository.delete(alert);
+        this.jobAlertIndex.remove(alert.getId());
     }
 
     @Transactional
@@ -155,6 +161,7 @@ public class JobAlertManagementService {
         boolean wasActive = alert.isActive();
         alert.setActive(!alert.isActive());
         JobAlert saved = this.jobAlertRepository.save(alert);
+        this.jobAlertIndex.refresh(saved.getId());
         
         // Nếu toggle thành active, gửi email ngay lập tức
         if (!wasActive && saved.isActive()) {
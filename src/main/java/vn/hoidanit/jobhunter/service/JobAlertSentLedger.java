@@ -0,0 +1,257 @@
+package vn.hoidanit.jobhunter.service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import vn.hoidanit.jobhunter.domain.JobAlertSentJob;
+import vn.hoidanit.jobhunter.repository.JobAlertSentJobRepository;
+
+/**
+ * Sổ ghi các job đã gửi qua job alert cho từng user trong ngày.
+ * Khóa là userId; alert không gắn user dùng khóa âm -alertId (JobAlertService.subscriberKey)
+ * để mỗi subscription chỉ có email có giới hạn riêng.
+ * - Mỗi user-ngày là một mảng long[] tăng dần, thay bằng mảng mới mỗi lần ghi (copy-on-write)
+ *   nên đọc không cần khóa; ghi được khóa theo stripe của userId
+ * - Chỉ giữ ngày hiện tại trong bộ nhớ, sang ngày mới thì dữ liệu ngày cũ tự bị bỏ
+ * - Thay đổi được gom lại và ghi xuống bảng job_alert_sent_jobs theo lô, nạp lại khi khởi động
+ */
+@Slf4j
+@Service
+public class JobAlertSentLedger {
+
+    private static final int STRIPES = 64;
+    private static final int RETENTION_DAYS = 7;
+    private static final long[] EMPTY = new long[0];
+
+    private static final String INSERT_SQL = "INSERT IGNORE INTO job_alert_sent_jobs (user_id, sent_date, job_id) VALUES (?, ?, ?)";
+    private static final String DELETE_SQL = "DELETE FROM job_alert_sent_jobs WHERE user_id = ? AND sent_date = ? AND job_id = ?";
+
+    private final JobAlertSentJobRepository jobAlertSentJobRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Object[] locks = new Object[STRIPES];
+    private volatile Day today = new Day(currentDate(), new ConcurrentHashMap<>());
+
+    // Thay đổi chưa ghi xuống database: true = thêm, false = xóa (thay đổi sau cùng thắng)
+    private final Map<SentJob, Boolean> pending = new ConcurrentHashMap<>();
+
+    public JobAlertSentLedger(
+            JobAlertSentJobRepository jobAlertSentJobRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager) {
+        this.jobAlertSentJobRepository = jobAlertSentJobRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Day day = currentDay();
+        try {
+            Map<Long, List<Long>> jobIdsByUser = new HashMap<>();
+            for (JobAlertSentJob row : this.jobAlertSentJobRepository.findBySentDate(day.date())) {
+                jobIdsByUser.computeIfAbsent(row.getUserId(), k -> new ArrayList<>()).add(row.getJobId());
+            }
+            jobIdsByUser.forEach((userId, jobIds) -> {
+                synchronized (lockFor(userId)) {
+                    long[] merged = day.sent().getOrDefault(userId, EMPTY);
+                    for (long jobId : jobIds) {
+                        merged = insert(merged, jobId);
+                    }
+                    day.sent().put(userId, merged);
+                }
+            });
+            log.info("Job alert sent ledger loaded {} users for {}", jobIdsByUser.size(), day.date());
+        } catch (Exception e) {
+            log.error("Failed to load job alert sent ledger: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * ID các job đã gửi cho user hôm nay (tăng dần). Không sửa mảng trả về.
+     */
+    public long[] sentJobIds(long userId) {
+        return currentDay().sent().getOrDefault(userId, EMPTY);
+    }
+
+    public int count(long userId) {
+        return sentJobIds(userId).length;
+    }
+
+    /**
+     * Ghi nhận các job sắp gửi, bỏ qua job đã gửi và dừng khi đủ limit.
+     * Trả về các job được ghi nhận (theo thứ tự truyền vào); gọi release nếu gửi thất bại.
+     */
+    public long[] reserve(long userId, long[] jobIds, int limit) {
+        Day day = currentDay();
+        synchronized (lockFor(userId)) {
+            long[] current = day.sent().getOrDefault(userId, EMPTY);
+            long[] reserved = new long[jobIds.length];
+            int count = 0;
+            for (long jobId : jobIds) {
+                if (current.length >= limit) {
+                    break;
+                }
+                if (Arrays.binarySearch(current, jobId) < 0) {
+                    current = insert(current, jobId);
+                    reserved[count++] = jobId;
+                    pending.put(new SentJob(userId, day.date(), jobId), true);
+                }
+            }
+            if (count > 0) {
+                day.sent().put(userId, current);
+            }
+            return Arrays.copyOf(reserved, count);
+        }
+    }
+
+    public void release(long userId, long[] jobIds) {
+        Day day = currentDay();
+        synchronized (lockFor(userId)) {
+            long[] current = day.sent().getOrDefault(userId, EMPTY);
+            for (long jobId : jobIds) {
+                current = remove(current, jobId);
+                pending.put(new SentJob(userId, day.date(), jobId), false);
+            }
+            day.sent().put(userId, current);
+        }
+    }
+
+    /**
+     * Thay job đã gửi oldJobId bằng newJobId; false nếu oldJobId không còn hoặc newJobId đã có
+     */
+    public boolean replace(long userId, long oldJobId, long newJobId) {
+        Day day = currentDay();
+        synchronized (lockFor(userId)) {
+            long[] current = day.sent().getOrDefault(userId, EMPTY);
+            if (Arrays.binarySearch(current, oldJobId) < 0 || Arrays.binarySearch(current, newJobId) >= 0) {
+                return false;
+            }
+            day.sent().put(userId, insert(remove(current, oldJobId), newJobId));
+            pending.put(new SentJob(userId, day.date(), oldJobId), false);
+            pending.put(new SentJob(userId, day.date(), newJobId), true);
+            return true;
+        }
+    }
+
+    /**
+     * Ghi các thay đổi đang chờ xuống database trong một transaction, mỗi loại một JDBC batch.
+     * Lỗi thì giữ lại để lần sau ghi tiếp.
+     */
+    @Scheduled(fixedDelayString = "${hoidanit.job-alert.ledger.flush-interval-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<SentJob, Boolean> batch = new HashMap<>(pending);
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        batch.forEach((entry, added) -> {
+            Object[] args = { entry.userId(), Date.valueOf(entry.date()), entry.jobId() };
+            (added ? inserts : deletes).add(args);
+        });
+        try {
+            this.transactionTemplate.executeWithoutResult(status -> {
+                if (!deletes.isEmpty()) {
+                    this.jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+                }
+                if (!inserts.isEmpty()) {
+                    this.jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+                }
+            });
+            // Chỉ bỏ các thay đổi chưa bị ghi đè trong lúc flush
+            batch.forEach(pending::remove);
+        } catch (Exception e) {
+            log.error("Failed to flush {} job alert sent entries: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Xóa dữ liệu các ngày cũ trong database
+     */
+    @Scheduled(cron = "0 15 0 * * ?")
+    public void purgeOldDays() {
+        int deleted = this.jobAlertSentJobRepository.deleteBySentDateBefore(currentDate().minusDays(RETENTION_DAYS));
+        if (deleted > 0) {
+            log.info("Purged {} job alert sent entries older than {} days", deleted, RETENTION_DAYS);
+        }
+    }
+
+    private Day currentDay() {
+        Day day = today;
+        LocalDate date = currentDate();
+        if (day.date().equals(date)) {
+            return day;
+        }
+        synchronized (this) {
+            if (!today.date().equals(date)) {
+                today = new Day(date, new ConcurrentHashMap<>());
+            }
+            return today;
+        }
+    }
+
+    private Object lockFor(long userId) {
+        return locks[Long.hashCode(userId) & (STRIPES - 1)];
+    }
+
+    private static LocalDate currentDate() {
+        return LocalDate.now(ZoneId.systemDefault());
+    }
+
+    private static long[] insert(long[] sorted, long value) {
+        int pos = Arrays.binarySearch(sorted, value);
+        if (pos >= 0) {
+            return sorted;
+        }
+        pos = -pos - 1;
+        long[] result = new long[sorted.length + 1];
+        System.arraycopy(sorted, 0, result, 0, pos);
+        result[pos] = value;
+        System.arraycopy(sorted, pos, result, pos + 1, sorted.length - pos);
+        return result;
+    }
+
+    private static long[] remove(long[] sorted, long value) {
+        int pos = Arrays.binarySearch(sorted, value);
+        if (pos < 0) {
+            return sorted;
+        }
+        long[] result = new long[sorted.length - 1];
+        System.arraycopy(sorted, 0, result, 0, pos);
+        System.arraycopy(sorted, pos + 1, result, pos, sorted.length - pos - 1);
+        return result;
+    }
+
+    private record Day(LocalDate date, Map<Long, long[]> sent) {
+    }
+
+    private record SentJob(long userId, LocalDate date, long jobId) {
+    }
+}
@@ -1,24 +1,47 @@
 package vn.hoidanit.jobhunter.service;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDate;
-import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import vn.hoidanit.jobhunter.config.AsyncConfiguration;
 import vn.hoidanit.jobhunter.domain.Job;
 import vn.hoidanit.jobhunter.domain.JobAlert;
 import vn.hoidanit.jobhunter.domain.Skill;
@@ -27,60 +50,347 @@ import vn.hoidanit.jobhunter.domain.response.email.ResEmailJob;
 import vn.hoidanit.jobhunter.repository.JobAlertRepository;
 import vn.hoidanit.jobhunter.repository.JobRepository;
 import vn.hoidanit.jobhunter.util.LocationMatcher;
+import vn.hoidanit.jobhunter.util.constant.LevelEnum;
 
+@Slf4j
 @Service
 public class JobAlertService {
 
     private final JobAlertRepository jobAlertRepository;
     private final JobRepository jobRepository;
-    private final EmailService emailService;
+    private final EmailOutboxService emailOutboxService;
+    private final JobEmailRenderer jobEmailRenderer;
+    private final JobAlertIndex jobAlertIndex;
+    private final ActiveJobAlertReader activeJobAlertReader;
+    private final JobSearchIndex jobSearchIndex;
+    private final MeterRegistry meterRegistry;
+    private final AsyncTaskExecutor alertExecutor;
+    private final AsyncTaskExecutor digestExecutor;
 
-    // Map để lưu jobs đã gửi mỗi ngày: key = "userId_date", value = Set<Long> jobIds
-    // Tự động reset mỗi ngày khi scheduled job chạy
-    private final Map<String, Set<Long>> dailySentJobs = new HashMap<>();
+    // Jobs đã gửi cho mỗi user trong ngày (thread-safe, lưu xuống database)
+    private final JobAlertSentLedger jobAlertSentLedger;
 
     // Giới hạn số lượng job gửi mỗi ngày
     private static final int MAX_JOBS_PER_DAY = 3;
 
+    private static final String ALERT_EMAIL_SUBJECT = "Việc làm mới phù hợp với tiêu chí của bạn";
+
+    // Số nhóm alert (theo user) trong một task chấm điểm của digest
+    private static final int DIGEST_PARTITION_SIZE = 256;
+
+    private final int digestSenderThreads;
+    private final int digestSendQueueCapacity;
+
+    private static final Duration DISTINCT_LOCATIONS_TTL = Duration.ofMinutes(10);
+
+    // Các location phân biệt của job, tính lại khi JobSearchIndex đổi phiên bản hoặc sau TTL
+    private volatile DistinctLocations distinctLocations;
+
     public JobAlertService(
             JobAlertRepository jobAlertRepository,
             JobRepository jobRepository,
-            EmailService emailService) {
+            EmailOutboxService emailOutboxService,
+            JobEmailRenderer jobEmailRenderer,
+            JobAlertIndex jobAlertIndex,
+            ActiveJobAlertReader activeJobAlertReader,
+            JobSearchIndex jobSearchIndex,
+            MeterRegistry meterRegistry,
+            JobAlertSentLedger jobAlertSentLedger,
+            @Qualifier(AsyncConfiguration.ALERT_EXECUTOR) AsyncTaskExecutor alertExecutor,
+            @Qualifier(AsyncConfiguration.DIGEST_EXECUTOR) AsyncTaskExecutor digestExecutor,
+            @Value("${hoidanit.async.digest.max-size:4}") int digestSenderThreads,
+            @Value("${hoidanit.job-alert.digest.send-queue-capacity:1000}") int digestSendQueueCapacity) {
         this.jobAlertRepository = jobAlertRepository;
         this.jobRepository = jobRepository;
-        this.emailService = emailService;
+        this.emailOutboxService = emailOutboxService;
+        this.jobEmailRenderer = jobEmailRenderer;
+        this.jobAlertIndex = jobAlertIndex;
+        this.activeJobAlertReader = activeJobAlertReader;
+        this.jobSearchIndex = jobSearchIndex;
+        this.meterRegistry = meterRegistry;
+        this.jobAlertSentLedger = jobAlertSentLedger;
+        this.alertExecutor = alertExecutor;
+        this.digestExecutor = digestExecutor;
+        this.digestSenderThreads = Math.max(1, digestSenderThreads);
+        this.digestSendQueueCapacity = Math.max(1, digestSendQueueCapacity);
     }
 
     /**
      * Gửi email tổng hợp hàng ngày cho các job alert đang active
      * Chỉ gửi tối đa 3 job có điểm phù hợp cao nhất mỗi ngày
+     *
+     * Pipeline 3 giai đoạn:
+     * 1. snapshot: load job active một lần (không giữ transaction trong lúc gửi mail)
+     * 2. score: alert được đọc theo chunk (ActiveJobAlertReader), mỗi chunk chấm điểm song song theo
+     *    partition trên alertExecutor trong lúc đọc chunk tiếp theo (trên JobFeatureStore dạng cột,
+     *    không đụng tới entity); kết quả các alert của một user được gộp, bỏ trùng, lấy top 3 chung
+     *    nên mỗi user nhận một email
+     * 3. send: kết quả đi qua hàng đợi có giới hạn tới các luồng gửi trên digestExecutor (render + đưa email vào outbox);
+     *    mỗi job chỉ render HTML một lần cho cả lượt (JobEmailRenderer)
+     * Thời gian từng giai đoạn được ghi vào timer "jobalert.digest.stage" (tag stage)
      */
     @Scheduled(cron = "0 0 8 * * ?")
-    @Transactional(readOnly = true)
     public void sendDailyJobAlerts() {
-        dailySentJobs.clear();
-
-        List<Job> allActiveJobs = fetchAllActiveJobs();
-        if (allActiveJobs.isEmpty()) {
+        long snapshotStart = System.nanoTime();
+        DigestSnapshot snapshot = loadDigestSnapshot();
+        long snapshotNanos = recordDigestStage("snapshot", snapshotStart);
+        if (snapshot == null) {
             return;
         }
 
-        List<JobAlert> alerts = this.jobAlertRepository.findActiveAlertsWithSkills();
-        if (alerts.isEmpty()) {
+        BlockingQueue<DigestResult> sendQueue = new ArrayBlockingQueue<>(digestSendQueueCapacity);
+        AtomicBoolean scoringDone = new AtomicBoolean(false);
+        AtomicInteger sentCount = new AtomicInteger();
+        AtomicInteger failedCount = new AtomicInteger();
+        JobEmailRenderer.Run renderRun = this.jobEmailRenderer.newRun();
+
+        long sendStart = System.nanoTime();
+        List<Future<?>> senders = new ArrayList<>(digestSenderThreads);
+        try {
+            for (int i = 0; i < digestSenderThreads; i++) {
+                senders.add(this.digestExecutor.submit(
+                        () -> drainDigestQueue(sendQueue, renderRun, scoringDone, sentCount, failedCount)));
+            }
+        } catch (TaskRejectedException e) {
+            log.warn("Digest executor is saturated, {} of {} senders started", senders.size(), digestSenderThreads);
+        }
+        if (senders.isEmpty()) {
+            // Không có luồng gửi thì hàng đợi gửi sẽ đầy và chặn việc chấm điểm
+            log.error("Daily job alert digest skipped: no sender could be started");
             return;
         }
 
-        for (JobAlert alert : alerts) {
-            List<Job> matchingJobs = findMatchingJobsForAlert(allActiveJobs, alert);
-            if (!matchingJobs.isEmpty()) {
-                List<Job> topJobs = selectTopJobsForAlert(alert, matchingJobs);
-                if (!topJobs.isEmpty() && sendEmailForAlert(alert, topJobs)) {
-                    markJobsAsSent(alert, topJobs);
+        long scoreStart = System.nanoTime();
+        long scoreNanos;
+        int userCount = 0;
+        try {
+            // Chunk trước được chấm điểm trong lúc đọc chunk sau; bộ nhớ chỉ giữ tối đa hai chunk
+            List<Future<Void>> previous = List.of();
+            for (List<JobAlert> chunk : this.activeJobAlertReader.chunks()) {
+                List<List<JobAlert>> groups = groupAlertsByUser(chunk);
+                userCount += groups.size();
+                List<Future<Void>> submitted = new ArrayList<>();
+                for (int from = 0; from < groups.size(); from += DIGEST_PARTITION_SIZE) {
+                    List<List<JobAlert>> partition = groups.subList(from, Math.min(from + DIGEST_PARTITION_SIZE, groups.size()));
+                    submitted.add(submitScoring(() -> {
+                        scoreDigestPartition(snapshot, partition, sendQueue);
+                        return null;
+                    }));
+                }
+                awaitAll(previous);
+                previous = submitted;
+            }
+            awaitAll(previous);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Daily job alert digest interrupted while scoring");
+        } catch (ExecutionException e) {
+            log.error("Daily job alert digest scoring failed: {}", e.getCause().getMessage(), e.getCause());
+        } finally {
+            scoreNanos = recordDigestStage("score", scoreStart);
+            scoringDone.set(true);
+        }
+
+        // Các luồng gửi tự kết thúc khi chấm điểm xong và hàng đợi rỗng
+        for (Future<?> sender : senders) {
+            try {
+                sender.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                senders.forEach(running -> running.cancel(true));
+                break;
+            } catch (ExecutionException e) {
+                log.error("Daily job alert digest sender failed: {}", e.getCause().getMessage(), e.getCause());
+            }
+        }
+        long sendNanos = recordDigestStage("send", sendStart);
+
+        log.info("Daily job alert digest: {} jobs ({} rendered), {} users, {} emails sent, {} failed; snapshot {} ms, score {} ms, send {} ms",
+                snapshot.jobs().size(), renderRun.cachedCards(), userCount,
+                sentCount.get(), failedCount.get(),
+                TimeUnit.NANOSECONDS.toMillis(snapshotNanos),
+                TimeUnit.NANOSECONDS.toMillis(scoreNanos),
+                TimeUnit.NANOSECONDS.toMillis(sendNanos));
+    }
+
+    /**
+     * Giai đoạn 1: job active (kèm skills, company, category) được load đầy đủ qua entity graph
+     * nên các giai đoạn sau chỉ đọc, không cần session.
+     */
+    private DigestSnapshot loadDigestSnapshot() {
+        List<Job> jobs = List.copyOf(fetchAllActiveJobs());
+        if (jobs.isEmpty()) {
+            return null;
+        }
+        return new DigestSnapshot(jobs, JobFeatureStore.build(jobs, Instant.now()));
+    }
+
+    /**
+     * Alert trong chunk được nhóm theo user để các alert của cùng một user được xử lý tuần tự
+     * trong cùng một partition (giới hạn MAX_JOBS_PER_DAY tính theo user).
+     * Alert không gắn user là một nhóm riêng.
+     */
+    private List<List<JobAlert>> groupAlertsByUser(List<JobAlert> chunk) {
+        Map<Long, List<JobAlert>> alertsByUser = new LinkedHashMap<>();
+        for (JobAlert alert : chunk) {
+            alertsByUser.computeIfAbsent(subscriberKey(alert), k -> new ArrayList<>()).add(alert);
+        }
+        return alertsByUser.values().stream()
+                .map(List::copyOf)
+                .toList();
+    }
+
+    /**
+     * Chấm điểm một partition trên alertExecutor; executor đầy thì chấm luôn trên luồng digest
+     */
+    private Future<Void> submitScoring(Callable<Void> task) {
+        try {
+            return this.alertExecutor.submit(task);
+        } catch (TaskRejectedException e) {
+            FutureTask<Void> inline = new FutureTask<>(task);
+            inline.run();
+            return inline;
+        }
+    }
+
+    private static void awaitAll(List<Future<Void>> futures) throws InterruptedException, ExecutionException {
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+    }
+
+    /**
+     * Giai đoạn 2: chấm điểm một partition, đẩy kết quả vào hàng đợi gửi (block khi hàng đợi đầy).
+     * Mỗi alert của user lấy top 3 của riêng nó, sau đó gộp lại theo job (giữ điểm cao nhất)
+     * và lấy top chung vừa với số chỗ còn lại trong ngày: một kết quả (một email) cho mỗi user.
+     */
+    private void scoreDigestPartition(DigestSnapshot snapshot, List<List<JobAlert>> partition,
+            BlockingQueue<DigestResult> sendQueue) throws InterruptedException {
+        JobFeatureStore features = snapshot.features();
+        int[] topIndexes = new int[MAX_JOBS_PER_DAY];
+        double[] topScores = new double[MAX_JOBS_PER_DAY];
+        int[] mergedIndexes = new int[MAX_JOBS_PER_DAY];
+        double[] mergedScores = new double[MAX_JOBS_PER_DAY];
+        int[] excluded = new int[MAX_JOBS_PER_DAY * 4];
+
+        for (List<JobAlert> group : partition) {
+            long[] sentJobIds = this.jobAlertSentLedger.sentJobIds(subscriberKey(group.get(0)));
+            int slots = MAX_JOBS_PER_DAY - sentJobIds.length;
+            if (slots <= 0) {
+                continue;
+            }
+            // Job đã gửi hôm nay không được chọn lại
+            int excludedCount = 0;
+            for (long jobId : sentJobIds) {
+                int index = features.indexOf(jobId);
+                if (index >= 0) {
+                    excluded = ensureCapacity(excluded, excludedCount + 1);
+                    excluded[excludedCount++] = index;
+                }
+            }
+
+            int merged = 0;
+            for (JobAlert alert : group) {
+                int found = features.topK(features.compile(alert), excluded, excludedCount, topIndexes, topScores);
+                for (int i = 0; i < found; i++) {
+                    merged = mergeTop(mergedIndexes, mergedScores, merged, topIndexes[i], topScores[i]);
+                }
+            }
+            if (merged == 0) {
+                continue;
+            }
+            int count = Math.min(merged, slots);
+            List<Job> topJobs = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                topJobs.add(snapshot.jobs().get(mergedIndexes[i]));
+            }
+            sendQueue.put(new DigestResult(group.get(0), topJobs));
+        }
+    }
+
+    /**
+     * Gộp job (index, score) vào top K giảm dần theo điểm; job đã có thì giữ điểm cao hơn.
+     * Trả về số job trong top sau khi gộp.
+     */
+    private static int mergeTop(int[] indexes, double[] scores, int count, int index, double score) {
+        int pos = -1;
+        for (int i = 0; i < count; i++) {
+            if (indexes[i] == index) {
+                pos = i;
+                break;
+            }
+        }
+        if (pos >= 0) {
+            if (score <= scores[pos]) {
+                return count;
+            }
+        } else if (count < indexes.length) {
+            pos = count++;
+        } else if (score > scores[count - 1]) {
+            pos = count - 1;
+        } else {
+            return count;
+        }
+        while (pos > 0 && scores[pos - 1] < score) {
+            indexes[pos] = indexes[pos - 1];
+            scores[pos] = scores[pos - 1];
+            pos--;
+        }
+        indexes[pos] = index;
+        scores[pos] = score;
+        return count;
+    }
+
+    private static int[] ensureCapacity(int[] values, int capacity) {
+        return capacity <= values.length ? values : Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+    }
+
+    /**
+     * Giai đoạn 3: lấy kết quả từ hàng đợi và gửi mail cho tới khi chấm điểm xong và hàng đợi rỗng
+     */
+    private void drainDigestQueue(BlockingQueue<DigestResult> sendQueue, JobEmailRenderer.Run renderRun,
+            AtomicBoolean scoringDone, AtomicInteger sentCount, AtomicInteger failedCount) {
+        try {
+            while (true) {
+                DigestResult result = sendQueue.poll(200, TimeUnit.MILLISECONDS);
+                if (result == null) {
+                    if (scoringDone.get() && sendQueue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                // Ghi nhận trước khi gửi để luồng thông báo job mới không vượt giới hạn trong ngày
+                long recipientKey = subscriberKey(result.recipient());
+                long[] reserved = this.jobAlertSentLedger.reserve(recipientKey, jobIdsOf(result.jobs()), MAX_JOBS_PER_DAY);
+                if (reserved.length == 0) {
+                    continue;
+                }
+                List<Job> reservedJobs = result.jobs().stream()
+                        .filter(job -> contains(reserved, job.getId()))
+                        .toList();
+                String html = renderRun.render(resolveRecipientName(result.recipient()), reservedJobs);
+                if (queueJobsEmail(result.recipient(), html)) {
+                    sentCount.incrementAndGet();
+                } else {
+                    this.jobAlertSentLedger.release(recipientKey, reserved);
+                    failedCount.incrementAndGet();
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
+    private long recordDigestStage(String stage, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        Timer.builder("jobalert.digest.stage")
+                .description("Thời gian từng giai đoạn của digest job alert hàng ngày")
+                .tag("stage", stage)
+                .register(this.meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        return elapsed;
+    }
+
     /**
      * Gửi email cho một job alert cụ thể (khi toggle bật)
      */
@@ -107,73 +417,168 @@ public class JobAlertService {
         List<Job> matchingJobs = findMatchingJobsForAlert(allActiveJobs, alertWithSkills);
         if (!matchingJobs.isEmpty()) {
             List<Job> topJobs = selectTopJobsForAlert(alertWithSkills, matchingJobs);
-            if (!topJobs.isEmpty() && sendEmailForAlert(alertWithSkills, topJobs)) {
-                markJobsAsSent(alertWithSkills, topJobs);
+            if (!topJobs.isEmpty()) {
+                sendAndMarkJobs(alertWithSkills, topJobs);
             }
         }
     }
 
-    @Async
-    public void sendNotificationForNewJobAsync(Job newJob) {
-        sendNotificationForNewJob(newJob);
-    }
-
     /**
-     * Gửi thông báo ngay khi có job mới được tạo
-     * Chỉ gửi nếu job mới có điểm cao hơn job thấp nhất đã gửi trong ngày
+     * Gửi thông báo cho một lô job mới (do NewJobNotificationBatcher gom lại)
+     * Mỗi người nhận được tối đa một email với các job mới có điểm cao nhất trong lô:
+     * - còn chỗ trong giới hạn ngày thì thêm job mới
+     * - đã đủ giới hạn thì job mới chỉ thay các job đã gửi có điểm thấp hơn
+     * Trả về số email đã đưa vào outbox.
+     * Transaction không read-only: email được ghi vào outbox (EmailOutboxService) trong lúc xử lý lô.
      */
-    @Transactional(readOnly = true)
-    public void sendNotificationForNewJob(Job newJob) {
-        if (newJob == null || !newJob.isActive()) {
-            return;
+    @Transactional
+    public int sendNotificationForNewJobs(Collection<Long> jobIds) {
+        if (jobIds == null || jobIds.isEmpty()) {
+            return 0;
         }
-
-        Job jobWithSkills = this.jobRepository.findByIdWithSkills(newJob.getId())
-                .filter(job -> job.getSkills() != null && !job.getSkills().isEmpty())
-                .orElse(null);
-        if (jobWithSkills == null) {
-            return;
+        List<Job> newJobs = this.jobRepository.findByIdsWithSkills(new ArrayList<>(jobIds)).stream()
+                .filter(job -> job.isActive() && job.getSkills() != null && !job.getSkills().isEmpty())
+                .toList();
+        if (newJobs.isEmpty()) {
+            return 0;
         }
 
-        this.jobAlertRepository.findActiveAlertsWithSkills().stream()
-                .filter(alert -> isJobMatchingAlert(jobWithSkills, alert))
-                .forEach(alert -> {
-                    Set<Long> sentJobIds = getSentJobsForAlert(alert);
-                    if (sentJobIds.size() >= MAX_JOBS_PER_DAY) {
-                        handleNewJobWhenLimitReached(alert, jobWithSkills, sentJobIds);
-                    } else {
-                        sendAndMarkJob(alert, jobWithSkills);
+        // Chỉ xét các alert có thể khớp theo index; index chưa sẵn sàng thì duyệt alert theo chunk
+        Map<Long, NewJobSubscriber> subscribers = new LinkedHashMap<>();
+        if (this.jobAlertIndex.isReady()) {
+            for (Job job : newJobs) {
+                for (JobAlert alert : this.jobAlertIndex.candidatesFor(job)) {
+                    collectMatch(subscribers, alert, job);
+                }
+            }
+        } else {
+            for (List<JobAlert> chunk : this.activeJobAlertReader.chunks()) {
+                for (JobAlert alert : chunk) {
+                    for (Job job : newJobs) {
+                        collectMatch(subscribers, alert, job);
                     }
-                });
+                }
+            }
+        }
+
+        int emails = 0;
+        for (NewJobSubscriber subscriber : subscribers.values()) {
+            if (notifySubscriber(subscriber)) {
+                emails++;
+            }
+        }
+        return emails;
     }
 
-    private void handleNewJobWhenLimitReached(JobAlert alert, Job newJob, Set<Long> sentJobIds) {
-        // Fix N+1 query: fetch all jobs in one query
-        List<Job> currentTopJobs = this.jobRepository.findByIdsWithSkills(new ArrayList<>(sentJobIds));
+    private void collectMatch(Map<Long, NewJobSubscriber> subscribers, JobAlert alert, Job job) {
+        if (isJobMatchingAlert(job, alert)) {
+            // Alert không gắn user được gửi riêng theo từng alert
+            subscribers.computeIfAbsent(subscriberKey(alert), k -> new NewJobSubscriber(alert)).add(alert, job);
+        }
+    }
 
-        if (currentTopJobs.isEmpty()) {
-            return;
+    private boolean notifySubscriber(NewJobSubscriber subscriber) {
+        long recipientKey = subscriberKey(subscriber.recipient());
+        long[] alreadySent = this.jobAlertSentLedger.sentJobIds(recipientKey);
+        List<JobWithScore> ranked = subscriber.ranked().stream()
+                .filter(candidate -> !contains(alreadySent, candidate.job().getId()))
+                .toList();
+        if (ranked.isEmpty()) {
+            return false;
         }
 
-        // Tối ưu: Pre-calculate alert skill IDs một lần
-        Set<Long> alertSkillIds = (alert.getSkills() != null && !alert.getSkills().isEmpty())
-                ? alert.getSkills().stream().map(Skill::getId).collect(Collectors.toSet())
-                : Set.of();
+        // Còn chỗ trong giới hạn ngày: ghi nhận các job mới điểm cao nhất
+        List<Job> chosen = new ArrayList<>();
+        long[] reserved = new long[0];
+        int free = MAX_JOBS_PER_DAY - alreadySent.length;
+        if (free > 0) {
+            reserved = this.jobAlertSentLedger.reserve(
+                    recipientKey, jobIdsOf(ranked.stream().limit(free).map(JobWithScore::job).toList()), MAX_JOBS_PER_DAY);
+        }
+        List<JobWithScore> remaining = new ArrayList<>();
+        for (JobWithScore candidate : ranked) {
+            if (contains(reserved, candidate.job().getId())) {
+                chosen.add(candidate.job());
+            } else {
+                remaining.add(candidate);
+            }
+        }
 
-        double newJobScore = calculateJobScoreOptimized(newJob, alert, alertSkillIds);
-        double minScore = currentTopJobs.stream()
-                .mapToDouble(job -> calculateJobScoreOptimized(job, alert, alertSkillIds))
-                .min()
-                .orElse(0.0);
+        // Đã đủ giới hạn: job mới thay job đã gửi có điểm thấp nhất nếu điểm cao hơn
+        List<long[]> replaced = new ArrayList<>();
+        if (!remaining.isEmpty() && this.jobAlertSentLedger.count(recipientKey) >= MAX_JOBS_PER_DAY) {
+            long[] alreadyReserved = reserved;
+            List<Long> sentIds = Arrays.stream(this.jobAlertSentLedger.sentJobIds(recipientKey))
+                    .filter(jobId -> !contains(alreadyReserved, jobId))
+                    .boxed()
+                    .toList();
+            List<JobWithScore> sentJobs = this.jobRepository.findByIdsWithSkills(sentIds).stream()
+                    .map(job -> new JobWithScore(job, subscriber.bestScore(job)))
+                    .sorted(Comparator.comparingDouble(JobWithScore::score))
+                    .toList();
+            int lowest = 0;
+            for (JobWithScore candidate : remaining) {
+                if (lowest >= sentJobs.size() || candidate.score() <= sentJobs.get(lowest).score()) {
+                    break;
+                }
+                long oldJobId = sentJobs.get(lowest++).job().getId();
+                long newJobId = candidate.job().getId();
+                if (this.jobAlertSentLedger.replace(recipientKey, oldJobId, newJobId)) {
+                    replaced.add(new long[] { oldJobId, newJobId });
+                    chosen.add(candidate.job());
+                }
+            }
+        }
 
-        if (newJobScore > minScore && sendEmailForAlert(alert, List.of(newJob))) {
-            updateSentJobs(alert, currentTopJobs, newJob, minScore);
+        if (chosen.isEmpty()) {
+            return false;
+        }
+        long[] reservedIds = reserved;
+        Runnable undo = () -> {
+            if (reservedIds.length > 0) {
+                this.jobAlertSentLedger.release(recipientKey, reservedIds);
+            }
+            for (long[] swap : replaced) {
+                this.jobAlertSentLedger.replace(recipientKey, swap[1], swap[0]);
+            }
+        };
+        if (sendEmailForAlert(subscriber.recipient(), chosen)) {
+            // Email nằm trong transaction của lô: lô rollback thì email không được gửi, hoàn lại sổ ghi
+            runAfterRollback(undo);
+            return true;
+        }
+        // Gửi thất bại: hoàn lại sổ ghi
+        undo.run();
+        return false;
+    }
+
+    private static void runAfterRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        action.run();
+                    }
+                }
+            });
         }
     }
 
-    private void sendAndMarkJob(JobAlert alert, Job job) {
-        if (sendEmailForAlert(alert, List.of(job))) {
-            markJobsAsSent(alert, List.of(job));
+    /**
+     * Ghi nhận các job vào giới hạn trong ngày rồi gửi; job đã gửi hoặc vượt giới hạn bị bỏ qua
+     */
+    private void sendAndMarkJobs(JobAlert alert, List<Job> jobs) {
+        long recipientKey = subscriberKey(alert);
+        long[] reserved = this.jobAlertSentLedger.reserve(recipientKey, jobIdsOf(jobs), MAX_JOBS_PER_DAY);
+        if (reserved.length == 0) {
+            return;
+        }
+        List<Job> reservedJobs = jobs.stream()
+                .filter(job -> contains(reserved, job.getId()))
+                .toList();
+        if (!sendEmailForAlert(alert, reservedJobs)) {
+            this.jobAlertSentLedger.release(recipientKey, reserved);
         }
     }
 
@@ -326,34 +731,30 @@ public class JobAlertService {
     }
 
     private Set<Long> getSentJobsForAlert(JobAlert alert) {
-        return dailySentJobs.getOrDefault(getDailyKey(alert), new HashSet<>());
+        return Arrays.stream(this.jobAlertSentLedger.sentJobIds(subscriberKey(alert)))
+                .boxed()
+                .collect(Collectors.toSet());
     }
 
-    private void markJobsAsSent(JobAlert alert, List<Job> jobs) {
-        Set<Long> sentJobIds = dailySentJobs.computeIfAbsent(getDailyKey(alert), k -> new HashSet<>());
-        jobs.forEach(job -> sentJobIds.add(job.getId()));
+    /**
+     * Khóa người nhận: userId, alert không gắn user (chỉ có email) là người nhận riêng với khóa -alertId.
+     * Dùng cho cả việc gom alert và sổ giới hạn MAX_JOBS_PER_DAY.
+     */
+    private long subscriberKey(JobAlert alert) {
+        return alert.getUser() != null ? alert.getUser().getId() : -alert.getId();
     }
 
-    private void updateSentJobs(JobAlert alert, List<Job> currentTopJobs, Job newJob, double minScore) {
-        String key = getDailyKey(alert);
-        Set<Long> sentJobIds = dailySentJobs.getOrDefault(key, new HashSet<>());
-        
-        // Tối ưu: Pre-calculate alert skill IDs một lần
-        Set<Long> alertSkillIds = (alert.getSkills() != null && !alert.getSkills().isEmpty())
-                ? alert.getSkills().stream().map(Skill::getId).collect(Collectors.toSet())
-                : Set.of();
-        
-        currentTopJobs.stream()
-                .filter(job -> Math.abs(calculateJobScoreOptimized(job, alert, alertSkillIds) - minScore) < 0.001)
-                .findFirst()
-                .ifPresent(job -> sentJobIds.remove(job.getId()));
-        
-        sentJobIds.add(newJob.getId());
+    private static long[] jobIdsOf(List<Job> jobs) {
+        return jobs.stream().mapToLong(Job::getId).toArray();
     }
 
-    private String getDailyKey(JobAlert alert) {
-        long userId = alert.getUser() != null ? alert.getUser().getId() : 0;
-        return userId + "_" + LocalDate.now(ZoneId.systemDefault());
+    private static boolean contains(long[] values, long value) {
+        for (long v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public boolean hasAnyCriteria(JobAlert alert) {
@@ -466,29 +867,138 @@ public class JobAlertService {
                 && job.getLevel().name().equalsIgnoreCase(alert.getExperience().trim());
     }
 
+    /**
+     * Chuyển tiêu chí của alert thành Specification (cùng điều kiện với isJobMatchingAlert)
+     * để lọc và phân trang trực tiếp trong database
+     */
+    public Specification<Job> buildMatchingSpecification(JobAlert alert) {
+        // Location trong từ điển: lọc theo location_id (có index).
+        // Location ngoài từ điển chỉ khớp với location cũng ngoài từ điển: so khớp trên danh sách
+        // location phân biệt (nhỏ) rồi lọc bằng IN
+        boolean hasLocation = alert.getLocation() != null && !alert.getLocation().isBlank();
+        int locationId = hasLocation ? LocationMatcher.locationId(alert.getLocation()) : LocationMatcher.UNKNOWN_LOCATION_ID;
+        List<String> matchingLocations = hasLocation && locationId == LocationMatcher.UNKNOWN_LOCATION_ID
+                ? getDistinctLocations().stream()
+                        .filter(location -> !location.isBlank()
+                                && LocationMatcher.matches(alert.getLocation(), location))
+                        .toList()
+                : null;
+
+        List<Long> skillIds = (alert.getSkills() != null && !alert.getSkills().isEmpty())
+                ? alert.getSkills().stream().map(Skill::getId).toList()
+                : null;
+
+        return (root, query, cb) -> {
+            List<jakarta.persistence.criteria.Predicate> predicates = new ArrayList<>();
+
+            if (skillIds != null) {
+                // Semi-join: job có ít nhất một skill của alert, không nhân bản dòng
+                Subquery<Long> skillMatch = query.subquery(Long.class);
+                Root<Job> subRoot = skillMatch.from(Job.class);
+                Join<Job, Skill> skill = subRoot.join("skills");
+                skillMatch.select(subRoot.get("id"))
+                        .where(cb.equal(subRoot.get("id"), root.get("id")), skill.get("id").in(skillIds));
+                predicates.add(cb.exists(skillMatch));
+            }
+
+            if (locationId != LocationMatcher.UNKNOWN_LOCATION_ID) {
+                predicates.add(cb.equal(root.get("locationId"), locationId));
+            } else if (matchingLocations != null) {
+                predicates.add(matchingLocations.isEmpty()
+                        ? cb.disjunction()
+                        : root.get("location").in(matchingLocations));
+            }
+
+            if (alert.getCategory() != null) {
+                predicates.add(cb.equal(root.get("category").get("id"), alert.getCategory().getId()));
+            }
+
+            if (alert.getMinSalary() != null || alert.getMaxSalary() != null) {
+                if (alert.getMinSalary() != null) {
+                    predicates.add(cb.greaterThanOrEqualTo(root.get("salary"), alert.getMinSalary().doubleValue()));
+                }
+                if (alert.getMaxSalary() != null) {
+                    predicates.add(cb.lessThanOrEqualTo(root.get("salary"), alert.getMaxSalary().doubleValue()));
+                }
+            } else if (alert.getDesiredSalary() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("salary"), alert.getDesiredSalary().doubleValue()));
+            }
+
+            if (alert.getExperience() != null && !alert.getExperience().isBlank()) {
+                LevelEnum level = parseLevel(alert.getExperience());
+                predicates.add(level != null ? cb.equal(root.get("level"), level) : cb.disjunction());
+            }
+
+            return cb.and(predicates.toArray(new jakarta.persistence.criteria.Predicate[0]));
+        };
+    }
+
+    private List<String> getDistinctLocations() {
+        // Đọc version trước khi query: nếu job thay đổi trong lúc query, lần sau sẽ tính lại
+        long version = this.jobSearchIndex.version();
+        DistinctLocations cached = this.distinctLocations;
+        if (cached != null && cached.version() == version
+                && cached.loadedAt().plus(DISTINCT_LOCATIONS_TTL).isAfter(Instant.now())) {
+            return cached.locations();
+        }
+        List<String> locations = List.copyOf(this.jobRepository.findDistinctLocations());
+        this.distinctLocations = new DistinctLocations(locations, version, Instant.now());
+        return locations;
+    }
+
+    private LevelEnum parseLevel(String experience) {
+        try {
+            return LevelEnum.valueOf(experience.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     private boolean sendEmailForAlert(JobAlert alert, List<Job> jobs) {
+        List<ResEmailJob> emailJobs = jobs.stream()
+                .map(JobEmailRenderer::toEmailJob)
+                .toList();
+        return sendJobsEmail(alert, emailJobs);
+    }
+
+    private boolean sendJobsEmail(JobAlert alert, List<ResEmailJob> emailJobs) {
         String recipientEmail = resolveRecipientEmail(alert);
         
         if (recipientEmail == null || recipientEmail.isBlank()) {
-            System.err.println(">>> [JobAlertService] ERROR: No recipient email found for alert ID: " + alert.getId());
+            log.warn("No recipient email found for job alert id={}", alert.getId());
             return false;
         }
 
-        List<ResEmailJob> emailJobs = jobs.stream()
-                .map(this::convertJobToEmailFormat)
-                .toList();
-
         try {
-            this.emailService.sendEmailFromTemplateSync(
+            this.emailOutboxService.enqueueTemplate(
                     recipientEmail,
-                    "Việc làm mới phù hợp với tiêu chí của bạn",
+                    ALERT_EMAIL_SUBJECT,
                     "job",
                     resolveRecipientName(alert),
                     emailJobs);
             return true;
         } catch (Exception e) {
-            System.err.println(">>> [JobAlertService] ERROR sending email for alert ID " + alert.getId() + " to " + recipientEmail + ": " + e.getMessage());
-            e.printStackTrace();
+            log.error("Failed to queue job alert email for alert id={} to {}: {}",
+                    alert.getId(), recipientEmail, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Đưa email đã render sẵn (digest) vào outbox
+     */
+    private boolean queueJobsEmail(JobAlert alert, String html) {
+        String recipientEmail = resolveRecipientEmail(alert);
+        if (recipientEmail == null || recipientEmail.isBlank()) {
+            log.warn("No recipient email found for job alert id={}", alert.getId());
+            return false;
+        }
+        try {
+            this.emailOutboxService.enqueue(recipientEmail, ALERT_EMAIL_SUBJECT, html, true);
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to queue job alert email for alert id={} to {}: {}",
+                    alert.getId(), recipientEmail, e.getMessage());
             return false;
         }
     }
@@ -507,24 +1017,52 @@ public class JobAlertService {
                 ? user.getName() : "Bạn";
     }
 
-    private ResEmailJob convertJobToEmailFormat(Job job) {
-        ResEmailJob res = new ResEmailJob();
-        res.setName(job.getName());
-        res.setSalary(job.getSalary());
+    private record JobWithScore(Job job, double score) {
+    }
 
-        if (job.getCompany() != null) {
-            res.setCompany(new ResEmailJob.CompanyEmail(job.getCompany().getName()));
+    /**
+     * Các job mới trong lô khớp với một người nhận; mỗi job giữ điểm cao nhất giữa các alert của người đó
+     */
+    private final class NewJobSubscriber {
+        private final JobAlert recipient;
+        private final Map<Long, JobAlert> alerts = new LinkedHashMap<>();
+        private final Map<Long, JobWithScore> jobs = new LinkedHashMap<>();
+
+        private NewJobSubscriber(JobAlert recipient) {
+            this.recipient = recipient;
+        }
+
+        private JobAlert recipient() {
+            return recipient;
+        }
+
+        private void add(JobAlert alert, Job job) {
+            alerts.putIfAbsent(alert.getId(), alert);
+            jobs.merge(job.getId(), new JobWithScore(job, calculateJobScore(job, alert)),
+                    (current, candidate) -> candidate.score() > current.score() ? candidate : current);
         }
 
-        if (job.getSkills() != null && !job.getSkills().isEmpty()) {
-            res.setSkills(job.getSkills().stream()
-                    .map(skill -> new ResEmailJob.SkillEmail(skill.getName()))
-                    .toList());
+        private double bestScore(Job job) {
+            return alerts.values().stream()
+                    .mapToDouble(alert -> calculateJobScore(job, alert))
+                    .max()
+                    .orElse(0);
         }
 
-        return res;
+        private List<JobWithScore> ranked() {
+            return jobs.values().stream()
+                    .sorted(Comparator.comparingDouble(JobWithScore::score).reversed())
+                    .toList();
+        }
     }
 
-    private record JobWithScore(Job job, double score) {
+    private record DigestSnapshot(List<Job> jobs, JobFeatureStore features) {
+    }
+
+    // recipient: alert đầu tiên của user, dùng để lấy email và tên người nhận
+    private record DigestResult(JobAlert recipient, List<Job> jobs) {
+    }
+
+    private record DistinctLocations(List<String> locations, long version, Instant loadedAt) {
     }
 }
@@ -0,0 +1,113 @@
+package vn.hoidanit.jobhunter.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import vn.hoidanit.jobhunter.domain.Job;
+import vn.hoidanit.jobhunter.domain.response.email.ResEmailJob;
+
+/**
+ * Render email thông báo việc làm (template "job") cho digest mà không chạy lại Thymeleaf cho từng người nhận:
+ * khung email được render một lần mỗi lượt, mỗi job (fragment "job-card :: card") được render một lần
+ * theo (jobId, updatedAt), email của từng người là khung + tên (đã escape) + các job ghép lại.
+ */
+@Service
+public class JobEmailRenderer {
+
+    private static final String TEMPLATE = "job";
+    private static final String CARD_TEMPLATE = "job-card";
+    private static final String NAME_MARKER = "__JOBHUNTER_RECIPIENT_NAME__";
+    private static final String CARDS_MARKER = "__JOBHUNTER_JOB_CARDS__";
+
+    private final SpringTemplateEngine templateEngine;
+
+    public JobEmailRenderer(SpringTemplateEngine templateEngine) {
+        this.templateEngine = templateEngine;
+    }
+
+    /**
+     * Bắt đầu một lượt render (một lần chạy digest); cache fragment chỉ sống trong lượt này
+     */
+    public Run newRun() {
+        Context context = new Context();
+        context.setVariable("name", NAME_MARKER);
+        context.setVariable("jobCards", CARDS_MARKER);
+        String wrapper = this.templateEngine.process(TEMPLATE, context);
+
+        int name = wrapper.indexOf(NAME_MARKER);
+        int cards = wrapper.indexOf(CARDS_MARKER);
+        if (name < 0 || cards < name) {
+            throw new IllegalStateException("Template " + TEMPLATE + " must render the name before the job list");
+        }
+        return new Run(
+                wrapper.substring(0, name),
+                wrapper.substring(name + NAME_MARKER.length(), cards),
+                wrapper.substring(cards + CARDS_MARKER.length()));
+    }
+
+    public static ResEmailJob toEmailJob(Job job) {
+        ResEmailJob res = new ResEmailJob();
+        res.setName(job.getName());
+        res.setSalary(job.getSalary());
+
+        if (job.getCompany() != null) {
+            res.setCompany(new ResEmailJob.CompanyEmail(job.getCompany().getName()));
+        }
+
+        if (job.getSkills() != null && !job.getSkills().isEmpty()) {
+            res.setSkills(job.getSkills().stream()
+                    .map(skill -> new ResEmailJob.SkillEmail(skill.getName()))
+                    .toList());
+        }
+
+        return res;
+    }
+
+    private String renderCard(Job job) {
+        Context context = new Context();
+        context.setVariable("job", toEmailJob(job));
+        return this.templateEngine.process(CARD_TEMPLATE, Set.of("card"), context);
+    }
+
+    /**
+     * Một lượt render, dùng được từ nhiều luồng
+     */
+    public class Run {
+        private final String head;
+        private final String middle;
+        private final String tail;
+        private final Map<CardKey, String> cards = new ConcurrentHashMap<>();
+
+        private Run(String head, String middle, String tail) {
+            this.head = head;
+            this.middle = middle;
+            this.tail = tail;
+        }
+
+        public String render(String recipientName, List<Job> jobs) {
+            StringBuilder html = new StringBuilder(head.length() + middle.length() + tail.length() + jobs.size() * 2048);
+            html.append(head)
+                    .append(HtmlUtils.htmlEscape(recipientName != null ? recipientName : "", "UTF-8"))
+                    .append(middle);
+            for (Job job : jobs) {
+                html.append(cards.computeIfAbsent(new CardKey(job.getId(), job.getUpdatedAt()), key -> renderCard(job)));
+            }
+            return html.append(tail).toString();
+        }
+
+        public int cachedCards() {
+            return cards.size();
+        }
+    }
+
+    private record CardKey(long jobId, Instant updatedAt) {
+    }
+}
@@ -0,0 +1,110 @@
+package vn.hoidanit.jobhunter.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import vn.hoidanit.jobhunter.domain.Job;
+import vn.hoidanit.jobhunter.repository.JobRepository;
+
+/**
+ * Tắt active cho các job đã hết hạn (endDate <= now) bằng UPDATE theo lô.
+ * Lần chạy tiếp theo được hẹn đúng vào endDate sớm nhất của các job còn active,
+ * nhờ vậy các API đọc job không cần tự cập nhật trạng thái nữa.
+ */
+@Slf4j
+@Service
+public class JobExpiryService {
+
+    private static final int BATCH_SIZE = 500;
+
+    // Chạy lại ít nhất mỗi giờ để không bỏ sót job bị sửa trực tiếp trong database
+    private static final Duration MAX_IDLE = Duration.ofHours(1);
+
+    private final JobRepository jobRepository;
+    private final JobSearchIndex jobSearchIndex;
+    private final TaskScheduler taskScheduler;
+
+    private ScheduledFuture<?> nextRun;
+    private Instant nextRunAt;
+
+    public JobExpiryService(
+            JobRepository jobRepository,
+            JobSearchIndex jobSearchIndex,
+            TaskScheduler taskScheduler) {
+        this.jobRepository = jobRepository;
+        this.jobSearchIndex = jobSearchIndex;
+        this.taskScheduler = taskScheduler;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        sweep();
+    }
+
+    /**
+     * Tắt các job đã hết hạn rồi hẹn lần chạy tiếp theo
+     */
+    public void sweep() {
+        Instant now = Instant.now();
+        int expired = 0;
+        try {
+            List<Long> ids;
+            do {
+                ids = this.jobRepository.findExpiredActiveJobIds(now, PageRequest.of(0, BATCH_SIZE));
+                if (!ids.isEmpty()) {
+                    expired += this.jobRepository.deactivateExpiredByIds(ids, now);
+                    this.jobSearchIndex.refresh(ids);
+                }
+            } while (ids.size() == BATCH_SIZE);
+
+            if (expired > 0) {
+                log.info("Deactivated {} expired jobs", expired);
+            }
+        } catch (Exception e) {
+            log.error("Failed to deactivate expired jobs: {}", e.getMessage());
+        }
+
+        synchronized (this) {
+            nextRun = null;
+            nextRunAt = null;
+        }
+        Instant nextEndDate = null;
+        try {
+            nextEndDate = this.jobRepository.findNextEndDate(now);
+        } catch (Exception e) {
+            log.error("Failed to find next job end date: {}", e.getMessage());
+        }
+        Instant latest = Instant.now().plus(MAX_IDLE);
+        scheduleAt(nextEndDate != null && nextEndDate.isBefore(latest) ? nextEndDate : latest);
+    }
+
+    /**
+     * Gọi sau khi tạo/cập nhật job để hẹn sớm lại nếu endDate mới sớm hơn lần chạy đã hẹn
+     */
+    public void onJobSaved(Job job) {
+        if (job.isActive() && job.getEndDate() != null) {
+            Instant now = Instant.now();
+            scheduleAt(job.getEndDate().isAfter(now) ? job.getEndDate() : now);
+        }
+    }
+
+    private synchronized void scheduleAt(Instant when) {
+        if (nextRun != null && nextRunAt != null && !nextRunAt.isAfter(when)) {
+            return;
+        }
+        if (nextRun != null) {
+            nextRun.cancel(false);
+        }
+        nextRunAt = when;
+        nextRun = this.taskScheduler.schedule(this::sweep, when);
+    }
+}
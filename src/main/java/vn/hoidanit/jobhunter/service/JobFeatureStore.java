@@ -0,0 +1,284 @@
+package vn.hoidanit.jobhunter.service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import vn.hoidanit.jobhunter.domain.Job;
+import vn.hoidanit.jobhunter.domain.JobAlert;
+import vn.hoidanit.jobhunter.domain.Skill;
+import vn.hoidanit.jobhunter.util.LocationMatcher;
+import vn.hoidanit.jobhunter.util.constant.LevelEnum;
+
+/**
+ * Đặc trưng của các job active dạng cột (mảng primitive) để chấm điểm job alert trong digest
+ * mà không đụng tới entity: skill là bitset theo chỉ số skill dày đặc, location là chỉ số
+ * trong danh sách location phân biệt, level là ordinal, createdAt là epoch millis.
+ *
+ * Điều kiện khớp và điểm giống hệt JobAlertService.isJobMatchingAlert / calculateJobScoreOptimized.
+ * Bất biến sau khi build, dùng chung được giữa các luồng.
+ */
+public final class JobFeatureStore {
+
+    private static final long NEW_JOB_WINDOW_MILLIS = 25L * 60 * 60 * 1000; // HOURS.between(...) <= 24
+    private static final long NO_CATEGORY = -1;
+    private static final byte NO_LEVEL = -1;
+    private static final long NO_CREATED_AT = Long.MIN_VALUE;
+
+    private final int size;
+    private final long[] jobIds;
+    private final double[] salaries;
+    private final byte[] levels;
+    private final long[] categoryIds;
+    private final int[] locations;
+    private final long[] createdAtMillis;
+    private final long[] skillBits;
+    private final int skillWords;
+
+    private final Map<Long, Integer> skillIndex;
+    private final Map<Long, Integer> jobIndex;
+    private final String[] distinctLocations;
+    private final long nowMillis;
+
+    // Kết quả LocationMatcher.matches(alertLocation, location phân biệt), dùng chung giữa các alert
+    private final Map<String, boolean[]> locationMatches = new ConcurrentHashMap<>();
+
+    private JobFeatureStore(List<Job> jobs, Instant now) {
+        this.size = jobs.size();
+        this.nowMillis = now.toEpochMilli();
+
+        this.skillIndex = new HashMap<>();
+        Map<String, Integer> locationIndex = new HashMap<>();
+        for (Job job : jobs) {
+            if (job.getSkills() != null) {
+                for (Skill skill : job.getSkills()) {
+                    skillIndex.putIfAbsent(skill.getId(), skillIndex.size());
+                }
+            }
+            if (job.getLocation() != null && !job.getLocation().isBlank()) {
+                locationIndex.putIfAbsent(job.getLocation(), locationIndex.size());
+            }
+        }
+        this.skillWords = Math.max(1, (skillIndex.size() + 63) >>> 6);
+        this.distinctLocations = new String[locationIndex.size()];
+        locationIndex.forEach((location, index) -> distinctLocations[index] = location);
+
+        this.jobIds = new long[size];
+        this.salaries = new double[size];
+        this.levels = new byte[size];
+        this.categoryIds = new long[size];
+        this.locations = new int[size];
+        this.createdAtMillis = new long[size];
+        this.skillBits = new long[size * skillWords];
+        this.jobIndex = new HashMap<>(size * 2);
+
+        for (int i = 0; i < size; i++) {
+            Job job = jobs.get(i);
+            jobIds[i] = job.getId();
+            jobIndex.put(job.getId(), i);
+            salaries[i] = job.getSalary();
+            levels[i] = job.getLevel() != null ? (byte) job.getLevel().ordinal() : NO_LEVEL;
+            categoryIds[i] = job.getCategory() != null ? job.getCategory().getId() : NO_CATEGORY;
+            locations[i] = job.getLocation() != null && !job.getLocation().isBlank()
+                    ? locationIndex.get(job.getLocation())
+                    : -1;
+            createdAtMillis[i] = job.getCreatedAt() != null ? job.getCreatedAt().toEpochMilli() : NO_CREATED_AT;
+            if (job.getSkills() != null) {
+                int base = i * skillWords;
+                for (Skill skill : job.getSkills()) {
+                    int bit = skillIndex.get(skill.getId());
+                    skillBits[base + (bit >>> 6)] |= 1L << bit;
+                }
+            }
+        }
+    }
+
+    public static JobFeatureStore build(List<Job> jobs, Instant now) {
+        return new JobFeatureStore(jobs, now);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long jobId(int index) {
+        return jobIds[index];
+    }
+
+    /**
+     * Chỉ số của job trong store, -1 nếu không có
+     */
+    public int indexOf(long jobId) {
+        Integer index = jobIndex.get(jobId);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Chuyển tiêu chí của alert sang dạng dùng được với store (mỗi alert một lần)
+     */
+    public CompiledAlert compile(JobAlert alert) {
+        boolean hasSkills = alert.getSkills() != null && !alert.getSkills().isEmpty();
+        long[] skillMask = new long[skillWords];
+        int skillCount = 0;
+        if (hasSkills) {
+            skillCount = alert.getSkills().size();
+            for (Skill skill : alert.getSkills()) {
+                Integer bit = skillIndex.get(skill.getId());
+                if (bit != null) {
+                    skillMask[bit >>> 6] |= 1L << bit;
+                }
+            }
+        }
+
+        boolean[] locationMask = null;
+        if (alert.getLocation() != null && !alert.getLocation().isBlank()) {
+            locationMask = locationMatches.computeIfAbsent(alert.getLocation(), this::matchLocations);
+        }
+
+        long categoryId = alert.getCategory() != null ? alert.getCategory().getId() : NO_CATEGORY;
+
+        boolean hasRange = alert.getMinSalary() != null || alert.getMaxSalary() != null;
+        boolean hasDesired = !hasRange && alert.getDesiredSalary() != null;
+        double minSalary = hasRange
+                ? (alert.getMinSalary() != null ? alert.getMinSalary() : Double.NEGATIVE_INFINITY)
+                : (hasDesired ? alert.getDesiredSalary() : Double.NEGATIVE_INFINITY);
+        double maxSalary = hasRange && alert.getMaxSalary() != null ? alert.getMaxSalary() : Double.POSITIVE_INFINITY;
+
+        boolean hasLevel = alert.getExperience() != null && !alert.getExperience().isBlank();
+        byte level = hasLevel ? parseLevel(alert.getExperience()) : NO_LEVEL;
+
+        boolean matchAll = !hasSkills && locationMask == null && categoryId == NO_CATEGORY
+                && !hasRange && !hasDesired && !hasLevel;
+
+        return new CompiledAlert(matchAll, hasSkills, skillMask, skillCount, locationMask, categoryId,
+                hasRange || hasDesired, minSalary, maxSalary, hasLevel, level);
+    }
+
+    /**
+     * Top K job khớp với alert theo điểm giảm dần (cùng điểm giữ job đứng trước), bỏ qua các chỉ số
+     * trong excluded[0..excludedCount). Ghi vào topIndexes / topScores (độ dài K), trả về số job tìm được.
+     * Không cấp phát bộ nhớ.
+     */
+    public int topK(CompiledAlert alert, int[] excluded, int excludedCount, int[] topIndexes, double[] topScores) {
+        int k = topIndexes.length;
+        int found = 0;
+        for (int i = 0; i < size; i++) {
+            double score = score(alert, i);
+            if (score < 0 || (found == k && score <= topScores[found - 1]) || contains(excluded, excludedCount, i)) {
+                continue;
+            }
+            int pos = found < k ? found++ : found - 1;
+            while (pos > 0 && topScores[pos - 1] < score) {
+                topIndexes[pos] = topIndexes[pos - 1];
+                topScores[pos] = topScores[pos - 1];
+                pos--;
+            }
+            topIndexes[pos] = i;
+            topScores[pos] = score;
+        }
+        return found;
+    }
+
+    /**
+     * Điểm của job i với alert (tối đa 100), -1 nếu job không khớp
+     */
+    public double score(CompiledAlert alert, int i) {
+        int matchedSkills = 0;
+        if (alert.hasSkills) {
+            int base = i * skillWords;
+            for (int w = 0; w < skillWords; w++) {
+                matchedSkills += Long.bitCount(skillBits[base + w] & alert.skillMask[w]);
+            }
+        }
+        if (!alert.matchAll) {
+            if (alert.hasSkills && matchedSkills == 0) {
+                return -1;
+            }
+            if (alert.locationMask != null && (locations[i] < 0 || !alert.locationMask[locations[i]])) {
+                return -1;
+            }
+            if (alert.categoryId != NO_CATEGORY && categoryIds[i] != alert.categoryId) {
+                return -1;
+            }
+            if (alert.hasSalary && (salaries[i] < alert.minSalary || salaries[i] > alert.maxSalary)) {
+                return -1;
+            }
+            if (alert.hasLevel && (levels[i] == NO_LEVEL || levels[i] != alert.level)) {
+                return -1;
+            }
+        }
+
+        // Job đã khớp: mỗi tiêu chí có mặt được trọn điểm (lương chỉ tính khi job có lương)
+        double score = 0;
+        score += alert.hasSkills ? (matchedSkills * 40.0) / alert.skillCount : 0;
+        score += alert.locationMask != null ? 20 : 0;
+        score += alert.categoryId != NO_CATEGORY ? 15 : 0;
+        score += alert.hasSalary && salaries[i] > 0 ? 15 : 0;
+        score += alert.hasLevel ? 10 : 0;
+        score += createdAtMillis[i] != NO_CREATED_AT && nowMillis - createdAtMillis[i] < NEW_JOB_WINDOW_MILLIS ? 5 : 0;
+        return score;
+    }
+
+    private boolean[] matchLocations(String alertLocation) {
+        boolean[] mask = new boolean[distinctLocations.length];
+        for (int i = 0; i < distinctLocations.length; i++) {
+            try {
+                mask[i] = LocationMatcher.matches(alertLocation, distinctLocations[i]);
+            } catch (Exception e) {
+                mask[i] = false;
+            }
+        }
+        return mask;
+    }
+
+    private static byte parseLevel(String experience) {
+        try {
+            return (byte) LevelEnum.valueOf(experience.trim().toUpperCase(Locale.ROOT)).ordinal();
+        } catch (IllegalArgumentException e) {
+            // Không có level nào khớp
+            return Byte.MIN_VALUE;
+        }
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static final class CompiledAlert {
+        private final boolean matchAll;
+        private final boolean hasSkills;
+        private final long[] skillMask;
+        private final int skillCount;
+        private final boolean[] locationMask;
+        private final long categoryId;
+        private final boolean hasSalary;
+        private final double minSalary;
+        private final double maxSalary;
+        private final boolean hasLevel;
+        private final byte level;
+
+        private CompiledAlert(boolean matchAll, boolean hasSkills, long[] skillMask, int skillCount,
+                boolean[] locationMask, long categoryId, boolean hasSalary, double minSalary, double maxSalary,
+                boolean hasLevel, byte level) {
+            this.matchAll = matchAll;
+            this.hasSkills = hasSkills;
+            this.skillMask = skillMask;
+            this.skillCount = skillCount;
+            this.locationMask = locationMask;
+            this.categoryId = categoryId;
+            this.hasSalary = hasSalary;
+            this.minSalary = minSalary;
+            this.maxSalary = maxSalary;
+            this.hasLevel = hasLevel;
+            this.level = level;
+        }
+    }
+}
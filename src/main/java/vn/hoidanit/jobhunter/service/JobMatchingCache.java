@@ -0,0 +1,154 @@
+package vn.hoidanit.jobhunter.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import vn.hoidanit.jobhunter.domain.Job;
+import vn.hoidanit.jobhunter.domain.Skill;
+import vn.hoidanit.jobhunter.repository.JobRepository;
+import vn.hoidanit.jobhunter.repository.UserRepository;
+import vn.hoidanit.jobhunter.util.constant.LevelEnum;
+
+/**
+ * Cache cho /jobs/matching và /jobs/matching/count.
+ * - Hồ sơ matching (skill, level, salary) của user theo email, xóa khi user được cập nhật hoặc bị xóa
+ * - Danh sách ID job phù hợp theo tập skill (đã sắp xếp) + sort, dùng chung cho các user
+ *   có cùng tập skill. Kết quả cũ khi JobSearchIndex đổi phiên bản (job được tạo, cập nhật,
+ *   hết hạn, xóa) hoặc sau TTL.
+ */
+@Service
+public class JobMatchingCache {
+
+    private static final int MAX_USERS = 10_000;
+    private static final int MAX_RESULTS = 1_000;
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    private final UserRepository userRepository;
+    private final JobRepository jobRepository;
+    private final JobSearchIndex jobSearchIndex;
+
+    private final Map<String, UserProfile> profilesByEmail = lruMap(MAX_USERS);
+    private final Map<ResultKey, Result> results = lruMap(MAX_RESULTS);
+
+    public JobMatchingCache(
+            UserRepository userRepository,
+            JobRepository jobRepository,
+            JobSearchIndex jobSearchIndex) {
+        this.userRepository = userRepository;
+        this.jobRepository = jobRepository;
+        this.jobSearchIndex = jobSearchIndex;
+    }
+
+    /**
+     * ID skill của user (tăng dần), rỗng nếu user không tồn tại hoặc chưa có skill
+     */
+    public List<Long> getSkillIds(String email) {
+        return getProfile(email).skillIds();
+    }
+
+    public UserProfile getProfile(String email) {
+        synchronized (profilesByEmail) {
+            UserProfile cached = profilesByEmail.get(email);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        List<Long> skillIds = List.copyOf(this.userRepository.findSkillIdsByEmail(email));
+        List<Object[]> rows = this.userRepository.findLevelAndSalaryByEmail(email);
+        Object[] row = rows.isEmpty() ? new Object[2] : rows.get(0);
+        UserProfile profile = new UserProfile(
+                skillIds,
+                (LevelEnum) row[0],
+                row[1] != null ? ((Number) row[1]).doubleValue() : 0);
+        synchronized (profilesByEmail) {
+            profilesByEmail.put(email, profile);
+        }
+        return profile;
+    }
+
+    /**
+     * ID các job active, chưa hết hạn, có ít nhất một skill trong skillIds, theo thứ tự sort
+     */
+    public long[] getMatchingJobIds(List<Long> skillIds, Sort sort) {
+        ResultKey key = new ResultKey(skillIds, sort);
+        long version = this.jobSearchIndex.version();
+        synchronized (results) {
+            Result cached = results.get(key);
+            if (cached != null && cached.version() == version
+                    && cached.loadedAt().plus(TTL).isAfter(Instant.now())) {
+                return cached.jobIds();
+            }
+        }
+
+        // Đọc version trước khi query: nếu job thay đổi trong lúc query, lần sau sẽ tính lại
+        List<Long> ids = this.jobRepository.findIds(matchingSpecification(skillIds), Pageable.unpaged(sort))
+                .getContent();
+        long[] jobIds = ids.stream().mapToLong(Long::longValue).toArray();
+        synchronized (results) {
+            results.put(key, new Result(jobIds, version, Instant.now()));
+        }
+        return jobIds;
+    }
+
+    /**
+     * Gọi khi skill của user thay đổi hoặc user bị xóa
+     */
+    public void evictUser(String email) {
+        if (email == null) {
+            return;
+        }
+        synchronized (profilesByEmail) {
+            profilesByEmail.remove(email);
+        }
+    }
+
+    private static Specification<Job> matchingSpecification(List<Long> skillIds) {
+        List<Long> ids = new ArrayList<>(skillIds);
+        return (root, query, cb) -> {
+            // Semi-join thay cho JOIN + DISTINCT trên job_skill
+            Subquery<Long> skillMatch = query.subquery(Long.class);
+            Root<Job> subRoot = skillMatch.from(Job.class);
+            Join<Job, Skill> skill = subRoot.join("skills");
+            skillMatch.select(subRoot.get("id"))
+                    .where(cb.equal(subRoot.get("id"), root.get("id")), skill.get("id").in(ids));
+
+            return cb.and(
+                    cb.equal(root.get("active"), true),
+                    cb.or(cb.isNull(root.get("endDate")), cb.greaterThan(root.get("endDate"), Instant.now())),
+                    cb.exists(skillMatch));
+        };
+    }
+
+    private static <K, V> Map<K, V> lruMap(int maxSize) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Thông tin của user dùng để tìm job phù hợp, skillIds tăng dần
+     */
+    public record UserProfile(List<Long> skillIds, LevelEnum level, double salary) {
+    }
+
+    private record ResultKey(List<Long> skillIds, Sort sort) {
+    }
+
+    private record Result(long[] jobIds, long version, Instant loadedAt) {
+    }
+}
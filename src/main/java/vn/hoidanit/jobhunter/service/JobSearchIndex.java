@@ -0,0 +1,1219 @@
+package vn.hoidanit.jobhunter.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+import vn.hoidanit.jobhunter.domain.Job;
+import vn.hoidanit.jobhunter.domain.Skill;
+import vn.hoidanit.jobhunter.domain.response.job.ResJobFacetsDTO;
+import vn.hoidanit.jobhunter.repository.JobRepository;
+import vn.hoidanit.jobhunter.util.KeysetCursor;
+import vn.hoidanit.jobhunter.util.LocationMatcher;
+import vn.hoidanit.jobhunter.util.TextNormalizer;
+import vn.hoidanit.jobhunter.util.constant.LevelEnum;
+
+/**
+ * Index in-memory cho danh sách job, phục vụ /api/v1/jobs/user-search.
+ * Mỗi location / skill / level / category giữ một BitSet các slot job, salary được giữ
+ * trong mảng đã sắp xếp để lọc theo khoảng bằng binary search.
+ * Keyword được tìm trên tên job, tên công ty và skills đã bỏ dấu, qua trigram / bigram index,
+ * chấp nhận gõ sai 1-2 ký tự và xếp hạng theo mức độ khớp.
+ * Index được nạp khi ứng dụng khởi động và cập nhật sau khi create/update/delete job commit.
+ */
+@Slf4j
+@Service
+public class JobSearchIndex {
+
+    private static final int LOAD_BATCH_SIZE = 500;
+
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of(
+            "id", "name", "salary", "quantity", "createdAt", "updatedAt", "startDate", "endDate");
+
+    private static final int FACET_CACHE_SIZE = 256;
+
+    // Số job tối đa được xếp hạng cho /jobs/matching?mode=relevance
+    static final int MAX_RANKED_RESULTS = 1000;
+
+    // Ranh giới các khoảng lương của facet (VND)
+    private static final double[] SALARY_BUCKET_BOUNDS = { 10_000_000, 20_000_000, 30_000_000, 50_000_000 };
+
+    private final JobRepository jobRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> slotByJobId = new HashMap<>();
+    private final BitSet liveSlots = new BitSet();
+    private Entry[] entries = new Entry[64];
+
+    private final Map<String, BitSet> locationPostings = new HashMap<>();
+    private final Map<String, BitSet> skillPostings = new HashMap<>();
+    private final Map<LevelEnum, BitSet> levelPostings = new EnumMap<>(LevelEnum.class);
+    private final Map<String, BitSet> categoryPostings = new HashMap<>();
+
+    // Trigram / bigram của từng từ (đã bỏ dấu) trong tên job, tên công ty và skills
+    private final Map<String, BitSet> trigramPostings = new HashMap<>();
+    private final Map<String, BitSet> bigramPostings = new HashMap<>();
+
+    // Tên hiển thị (giữ nguyên hoa thường) của location / skill / category theo key
+    private final Map<String, String> labels = new HashMap<>();
+
+    // Kết quả facet theo tiêu chí đã chuẩn hóa, xóa toàn bộ mỗi khi index thay đổi
+    private final Map<Criteria, ResJobFacetsDTO> facetCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Criteria, ResJobFacetsDTO> eldest) {
+            return size() > FACET_CACHE_SIZE;
+        }
+    };
+
+    // Salary tăng dần, slotsBySalary[i] là slot có salary = sortedSalaries[i]
+    private double[] sortedSalaries = new double[64];
+    private int[] slotsBySalary = new int[64];
+    private int salaryCount = 0;
+
+    private volatile boolean ready = false;
+
+    // Khác null khi rebuild đang chạy: các job được refresh / remove trong lúc đó (ghi trong write lock)
+    private Set<Long> changedDuringRebuild;
+
+    // Tăng sau mỗi lần index thay đổi, cache bên ngoài dùng để biết kết quả đã cũ
+    private final AtomicLong version = new AtomicLong();
+
+    public JobSearchIndex(JobRepository jobRepository) {
+        this.jobRepository = jobRepository;
+    }
+
+    /**
+     * Nạp toàn bộ job vào index khi ứng dụng sẵn sàng.
+     * Trong lúc nạp, các request search vẫn đi qua database.
+     * Job được refresh / remove trong lúc đang nạp (dữ liệu nạp có thể đã cũ, hoặc thay đổi đã được
+     * ghi rồi bị clear() xóa mất) được ghi lại và nạp lại sau khi thay index.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            List<Job> jobs = loadJobs(this.jobRepository.findAllIds());
+
+            Set<Long> replay;
+            lock.writeLock().lock();
+            try {
+                clear();
+                jobs.forEach(job -> {
+                    rememberLabels(labels, job);
+                    upsertLocked(toEntry(job));
+                });
+                ready = true;
+                replay = takeChangedDuringRebuild();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            while (!replay.isEmpty()) {
+                List<Job> reloaded = loadJobs(new ArrayList<>(replay));
+                lock.writeLock().lock();
+                try {
+                    applyLocked(replay, reloaded);
+                    replay = takeChangedDuringRebuild();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            log.info("Job search index loaded {} jobs in {} ms", jobs.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Failed to build job search index, search falls back to database: {}", e.getMessage());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private List<Job> loadJobs(List<Long> ids) {
+        List<Job> jobs = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += LOAD_BATCH_SIZE) {
+            int to = Math.min(from + LOAD_BATCH_SIZE, ids.size());
+            jobs.addAll(this.jobRepository.findByIdsWithSkills(ids.subList(from, to)));
+        }
+        return jobs;
+    }
+
+    // Lấy các job cần nạp lại; hết job thì kết thúc việc ghi lại (rebuild coi như xong)
+    private Set<Long> takeChangedDuringRebuild() {
+        Set<Long> changed = changedDuringRebuild;
+        changedDuringRebuild = changed.isEmpty() ? null : new HashSet<>();
+        return changed;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Phiên bản dữ liệu job: thay đổi khi có job được tạo, cập nhật, hết hạn hoặc bị xóa
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Index chỉ sắp xếp được theo các field đơn giản của job
+     */
+    public boolean supportsSort(Sort sort) {
+        for (Sort.Order order : sort) {
+            if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Nạp lại một job từ database sau khi transaction hiện tại commit
+     */
+    public void refresh(long jobId) {
+        refresh(List.of(jobId));
+    }
+
+    /**
+     * Nạp lại các job từ database sau khi transaction hiện tại commit, mỗi LOAD_BATCH_SIZE job một query
+     */
+    public void refresh(Collection<Long> jobIds) {
+        if (jobIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(jobIds);
+        runAfterCommit(() -> {
+            List<Job> jobs = loadJobs(ids);
+            lock.writeLock().lock();
+            try {
+                if (changedDuringRebuild != null) {
+                    changedDuringRebuild.addAll(ids);
+                }
+                applyLocked(ids, jobs);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Xóa job khỏi index sau khi transaction hiện tại commit
+     */
+    public void remove(long jobId) {
+        runAfterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                if (changedDuringRebuild != null) {
+                    changedDuringRebuild.add(jobId);
+                }
+                removeLocked(jobId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Ghi dữ liệu vừa nạp của các job ids, job không còn trong database bị xóa khỏi index
+    private void applyLocked(Collection<Long> ids, List<Job> jobs) {
+        Set<Long> missing = new HashSet<>(ids);
+        for (Job job : jobs) {
+            missing.remove(job.getId());
+            rememberLabels(labels, job);
+            upsertLocked(toEntry(job));
+        }
+        missing.forEach(this::removeLocked);
+    }
+
+    /**
+     * Tìm job theo tiêu chí, trả về một trang job ID theo thứ tự sort của pageable
+     */
+    public Page<Long> search(Criteria criteria, Pageable pageable) {
+        List<Entry> matches;
+        lock.readLock().lock();
+        try {
+            BitSet slots = matchSlots(criteria);
+            matches = new ArrayList<>(slots.cardinality());
+            for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+                matches.add(entries[slot]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (criteria.keyword() != null && pageable.getSort().isUnsorted()) {
+            // Không chỉ định sort: job khớp keyword tốt hơn đứng trước, cùng điểm thì job mới hơn trước
+            String[] tokens = criteria.keywordTokens();
+            Map<Long, Integer> scores = new HashMap<>(matches.size() * 2);
+            matches.forEach(entry -> scores.put(entry.id(), keywordScore(entry, tokens)));
+            matches.sort(Comparator.<Entry>comparingInt(entry -> scores.get(entry.id())).reversed()
+                    .thenComparing(Comparator.comparingLong(Entry::id).reversed()));
+        } else {
+            matches.sort(comparatorFor(pageable.getSort()));
+        }
+
+        int total = matches.size();
+        int from = (int) Math.min(pageable.getOffset(), total);
+        int to = Math.min(from + pageable.getPageSize(), total);
+        List<Long> pageIds = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            pageIds.add(matches.get(i).id());
+        }
+        return new PageImpl<>(pageIds, pageable, total);
+    }
+
+    /**
+     * Keyset pagination trên index: trả về tối đa limit job ID đứng sau cursor
+     */
+    public List<Long> scroll(Criteria criteria, Sort.Order order, KeysetCursor after, int limit) {
+        Comparator<Entry> comparator = comparatorFor(KeysetCursor.sortOf(order));
+        Entry probe = after != null ? probeFor(after) : null;
+
+        List<Entry> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            BitSet slots = matchSlots(criteria);
+            for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+                if (probe == null || comparator.compare(entries[slot], probe) > 0) {
+                    matches.add(entries[slot]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(comparator);
+        List<Long> ids = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            ids.add(matches.get(i).id());
+        }
+        return ids;
+    }
+
+    /**
+     * Đếm số job active (chưa hết hạn) khớp tiêu chí theo từng location / skill / level /
+     * category / khoảng lương, chỉ duyệt tập kết quả một lần
+     */
+    public ResJobFacetsDTO facets(Criteria criteria) {
+        lock.readLock().lock();
+        try {
+            // Cache được đọc/ghi trong read lock nên không thể lẫn kết quả trước một lần ghi index
+            synchronized (facetCache) {
+                ResJobFacetsDTO cached = facetCache.get(criteria);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+
+            FacetCounter counter = new FacetCounter(Instant.now());
+            BitSet slots = matchSlots(criteria);
+            for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+                counter.add(entries[slot]);
+            }
+            ResJobFacetsDTO facets = counter.toDTO(labels);
+
+            synchronized (facetCache) {
+                facetCache.put(criteria, facets);
+            }
+            return facets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Đếm facet cho danh sách job đã lọc sẵn từ database (dùng khi index chưa sẵn sàng)
+     */
+    public static ResJobFacetsDTO facetsOf(List<Job> jobs) {
+        FacetCounter counter = new FacetCounter(Instant.now());
+        Map<String, String> jobLabels = new HashMap<>();
+        for (Job job : jobs) {
+            rememberLabels(jobLabels, job);
+            counter.add(toEntry(job));
+        }
+        return counter.toDTO(jobLabels);
+    }
+
+    /**
+     * Xếp hạng các job active (chưa hết hạn) có ít nhất một skill trùng với user, theo điểm:
+     * tỉ lệ skill trùng (40), level (10), lương (15), độ mới (5) - cùng thang điểm với
+     * JobAlertService.calculateJobScoreOptimized. Chỉ giữ top K = offset + pageSize bằng min-heap
+     * nên không phải sắp xếp toàn bộ kết quả. Chỉ MAX_RANKED_RESULTS job đầu được xếp hạng nên total
+     * (và số trang) cũng bị giới hạn ở đó, trang nằm ngoài giới hạn trả về rỗng.
+     *
+     * @param userSkillIds ID skill của user, tăng dần
+     */
+    public Page<Long> rankMatching(long[] userSkillIds, LevelEnum userLevel, double desiredSalary, Pageable pageable) {
+        int k = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), MAX_RANKED_RESULTS);
+        double[] heapScores = new double[Math.max(k, 1)];
+        int[] heapSlots = new int[Math.max(k, 1)];
+        int heapSize = 0;
+        int total = 0;
+        long nowMillis = System.currentTimeMillis();
+
+        lock.readLock().lock();
+        try {
+            for (int slot = liveSlots.nextSetBit(0); slot >= 0; slot = liveSlots.nextSetBit(slot + 1)) {
+                Entry entry = entries[slot];
+                if (!entry.active() || (entry.endDate() != null && entry.endDate().toEpochMilli() <= nowMillis)) {
+                    continue;
+                }
+                int matched = countCommon(entry.skillIds(), userSkillIds);
+                if (matched == 0) {
+                    continue;
+                }
+                total++;
+                if (k == 0) {
+                    continue;
+                }
+
+                double score = 40.0 * matched / userSkillIds.length
+                        + levelScore(entry.level(), userLevel)
+                        + salaryScore(entry.salary(), desiredSalary)
+                        + recencyScore(entry.createdAt(), nowMillis);
+
+                if (heapSize < k) {
+                    heapScores[heapSize] = score;
+                    heapSlots[heapSize] = slot;
+                    siftUp(heapScores, heapSlots, heapSize++);
+                } else if (ranksBefore(score, slot, heapScores[0], heapSlots[0])) {
+                    heapScores[0] = score;
+                    heapSlots[0] = slot;
+                    siftDown(heapScores, heapSlots, heapSize);
+                }
+            }
+
+            // Lấy dần phần tử nhỏ nhất ra cuối mảng -> kết quả giảm dần theo điểm
+            long[] rankedIds = new long[heapSize];
+            for (int size = heapSize; size > 0; size--) {
+                rankedIds[size - 1] = entries[heapSlots[0]].id();
+                heapScores[0] = heapScores[size - 1];
+                heapSlots[0] = heapSlots[size - 1];
+                siftDown(heapScores, heapSlots, size - 1);
+            }
+
+            int from = (int) Math.min(pageable.getOffset(), rankedIds.length);
+            List<Long> pageIds = new ArrayList<>(rankedIds.length - from);
+            for (int i = from; i < rankedIds.length; i++) {
+                pageIds.add(rankedIds[i]);
+            }
+            return new PageImpl<>(pageIds, pageable, Math.min(total, MAX_RANKED_RESULTS));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Số phần tử chung của hai mảng tăng dần
+    private static int countCommon(long[] a, long[] b) {
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return common;
+    }
+
+    // Đúng level 10 điểm, lệch một bậc 5 điểm
+    private static double levelScore(LevelEnum jobLevel, LevelEnum userLevel) {
+        if (jobLevel == null || userLevel == null) {
+            return 0;
+        }
+        int distance = Math.abs(jobLevel.ordinal() - userLevel.ordinal());
+        return distance == 0 ? 10 : distance == 1 ? 5 : 0;
+    }
+
+    // Lương đạt mong muốn 15 điểm, thấp hơn thì theo tỉ lệ
+    private static double salaryScore(double jobSalary, double desiredSalary) {
+        if (jobSalary <= 0 || desiredSalary <= 0) {
+            return 0;
+        }
+        return jobSalary >= desiredSalary ? 15 : 15 * jobSalary / desiredSalary;
+    }
+
+    // Job trong 24h 5 điểm, giảm dần về 0 sau 30 ngày
+    private static double recencyScore(Instant createdAt, long nowMillis) {
+        if (createdAt == null) {
+            return 0;
+        }
+        double ageDays = (nowMillis - createdAt.toEpochMilli()) / 86_400_000.0;
+        if (ageDays <= 1) {
+            return 5;
+        }
+        return ageDays >= 30 ? 0 : 5 * (30 - ageDays) / 29;
+    }
+
+    // Điểm cao hơn đứng trước, cùng điểm thì job mới hơn (id lớn hơn) đứng trước
+    private boolean ranksBefore(double score, int slot, double otherScore, int otherSlot) {
+        if (score != otherScore) {
+            return score > otherScore;
+        }
+        return entries[slot].id() > entries[otherSlot].id();
+    }
+
+    // Min-heap: gốc là job xếp hạng thấp nhất trong top K
+    private void siftUp(double[] scores, int[] slots, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksBefore(scores[parent], slots[parent], scores[index], slots[index])) {
+                return;
+            }
+            swap(scores, slots, parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(double[] scores, int[] slots, int size) {
+        int index = 0;
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int lowest = left;
+            int right = left + 1;
+            if (right < size && ranksBefore(scores[left], slots[left], scores[right], slots[right])) {
+                lowest = right;
+            }
+            if (!ranksBefore(scores[index], slots[index], scores[lowest], slots[lowest])) {
+                return;
+            }
+            swap(scores, slots, index, lowest);
+            index = lowest;
+        }
+    }
+
+    private static void swap(double[] scores, int[] slots, int i, int j) {
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+        int slot = slots[i];
+        slots[i] = slots[j];
+        slots[j] = slot;
+    }
+
+    private BitSet matchSlots(Criteria criteria) {
+        BitSet result = (BitSet) liveSlots.clone();
+
+        if (criteria.locations() != null) {
+            result.and(union(locationPostings, criteria.locations()));
+        }
+        if (criteria.skills() != null) {
+            result.and(union(skillPostings, criteria.skills()));
+        }
+        if (criteria.levels() != null) {
+            result.and(union(levelPostings, criteria.levels()));
+        }
+        if (criteria.categories() != null) {
+            result.and(union(categoryPostings, criteria.categories()));
+        }
+        if (criteria.minSalary() != null || criteria.maxSalary() != null) {
+            result.and(salaryRange(criteria.minSalary(), criteria.maxSalary()));
+        }
+
+        // Thu hẹp theo trigram / bigram của từng từ khóa trước khi kiểm tra chính xác
+        String[] tokens = criteria.keyword() != null ? criteria.keywordTokens() : new String[0];
+        for (String token : tokens) {
+            BitSet candidates = gramCandidates(token);
+            if (candidates != null) {
+                result.and(candidates);
+            }
+        }
+
+        // keyword và companyName được kiểm tra trên tập đã được thu hẹp
+        if (tokens.length > 0 || criteria.companyName() != null) {
+            for (int slot = result.nextSetBit(0); slot >= 0; slot = result.nextSetBit(slot + 1)) {
+                Entry entry = entries[slot];
+                if ((tokens.length > 0 && keywordScore(entry, tokens) < 0)
+                        || (criteria.companyName() != null && !entry.foldedCompany().contains(criteria.companyName()))) {
+                    result.clear(slot);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Các slot có thể khớp token (kể cả sai chính tả trong giới hạn cho phép).
+     * Mỗi lần sửa một ký tự làm mất tối đa n n-gram của token, nên từ khớp phải còn chung
+     * ít nhất (số n-gram - n * số lỗi cho phép) n-gram với token. Dùng trigram khi ngưỡng này >= 1,
+     * nếu không (token 4-5 hoặc 8-10 ký tự) thì dùng bigram, vẫn lọc được mà không bỏ sót.
+     * Trả về null khi token quá ngắn để lọc (sẽ kiểm tra trực tiếp).
+     */
+    private BitSet gramCandidates(String token) {
+        int maxEdits = allowedEdits(token);
+        Set<String> grams = grams(token, 3);
+        Map<String, BitSet> postings = trigramPostings;
+        int threshold = grams.size() - 3 * maxEdits;
+        if (threshold < 1) {
+            grams = grams(token, 2);
+            postings = bigramPostings;
+            threshold = grams.size() - 2 * maxEdits;
+        }
+        if (threshold < 1) {
+            return null;
+        }
+
+        // atLeast[i]: các slot có mặt trong ít nhất i + 1 posting đã duyệt
+        BitSet[] atLeast = new BitSet[threshold];
+        for (int i = 0; i < threshold; i++) {
+            atLeast[i] = new BitSet();
+        }
+        BitSet promoted = new BitSet();
+        for (String gram : grams) {
+            BitSet posting = postings.get(gram);
+            if (posting == null) {
+                continue;
+            }
+            for (int i = threshold - 1; i > 0; i--) {
+                promoted.clear();
+                promoted.or(atLeast[i - 1]);
+                promoted.and(posting);
+                atLeast[i].or(promoted);
+            }
+            atLeast[0].or(posting);
+        }
+        return atLeast[threshold - 1];
+    }
+
+    /**
+     * Điểm khớp keyword của job, -1 nếu có token không khớp.
+     * Mỗi token: trùng nguyên từ trong tên job 4, nằm trong tên job 3,
+     * nằm trong tên công ty / skills 2, gần đúng (sai 1-2 ký tự) 1.
+     */
+    private static int keywordScore(Entry entry, String[] tokens) {
+        int total = 0;
+        for (String token : tokens) {
+            int score = tokenScore(entry, token);
+            if (score < 0) {
+                return -1;
+            }
+            total += score;
+        }
+        return total;
+    }
+
+    private static int tokenScore(Entry entry, String token) {
+        if (containsWord(entry.foldedName(), token)) {
+            return 4;
+        }
+        if (entry.foldedName().contains(token)) {
+            return 3;
+        }
+        if (entry.foldedCompany().contains(token) || entry.foldedSkills().contains(token)) {
+            return 2;
+        }
+        int maxEdits = allowedEdits(token);
+        if (maxEdits > 0 && (hasSimilarWord(entry.foldedName(), token, maxEdits)
+                || hasSimilarWord(entry.foldedCompany(), token, maxEdits)
+                || hasSimilarWord(entry.foldedSkills(), token, maxEdits))) {
+            return 1;
+        }
+        return -1;
+    }
+
+    private static boolean containsWord(String text, String token) {
+        for (String word : words(text)) {
+            if (word.equals(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasSimilarWord(String text, String token, int maxEdits) {
+        for (String word : words(text)) {
+            if (Math.abs(word.length() - token.length()) <= maxEdits
+                    && editDistance(word, token, maxEdits) <= maxEdits) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Số ký tự được phép gõ sai theo độ dài từ khóa
+    private static int allowedEdits(String token) {
+        if (token.length() >= 8) {
+            return 2;
+        }
+        return token.length() >= 4 ? 1 : 0;
+    }
+
+    /**
+     * Khoảng cách Levenshtein, dừng sớm khi chắc chắn vượt quá maxEdits
+     */
+    private static int editDistance(String a, String b, int maxEdits) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return rowMin;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static String[] words(String text) {
+        return text.isEmpty() ? new String[0] : text.split(" ");
+    }
+
+    private static Set<String> grams(String word, int n) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + n <= word.length(); i++) {
+            grams.add(word.substring(i, i + n));
+        }
+        return grams;
+    }
+
+    // n-gram của tất cả các từ trong tên job, tên công ty và skills
+    private static Set<String> entryGrams(Entry entry, int n) {
+        Set<String> grams = new HashSet<>();
+        for (String text : new String[] { entry.foldedName(), entry.foldedCompany(), entry.foldedSkills() }) {
+            for (String word : words(text)) {
+                grams.addAll(grams(word, n));
+            }
+        }
+        return grams;
+    }
+
+    private static <K> BitSet union(Map<K, BitSet> postings, Collection<K> keys) {
+        BitSet result = new BitSet();
+        for (K key : keys) {
+            BitSet posting = postings.get(key);
+            if (posting != null) {
+                result.or(posting);
+            }
+        }
+        return result;
+    }
+
+    private BitSet salaryRange(Double minSalary, Double maxSalary) {
+        int from = minSalary == null ? 0 : lowerBound(minSalary);
+        int to = maxSalary == null ? salaryCount : upperBound(maxSalary);
+        BitSet result = new BitSet();
+        for (int i = from; i < to; i++) {
+            result.set(slotsBySalary[i]);
+        }
+        return result;
+    }
+
+    // Vị trí đầu tiên có salary >= value
+    private int lowerBound(double value) {
+        int low = 0;
+        int high = salaryCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedSalaries[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Vị trí đầu tiên có salary > value
+    private int upperBound(double value) {
+        int low = 0;
+        int high = salaryCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedSalaries[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static Comparator<Entry> comparatorFor(Sort sort) {
+        Comparator<Entry> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Entry> next = comparatorFor(order.getProperty());
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        Comparator<Entry> byId = Comparator.comparingLong(Entry::id);
+        return comparator == null ? byId : comparator.thenComparing(byId);
+    }
+
+    private static Comparator<Entry> comparatorFor(String property) {
+        // NULL đứng đầu khi ASC và cuối khi DESC, giống MySQL
+        return switch (property) {
+            case "name" -> Comparator.comparing(Entry::name, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "salary" -> Comparator.comparingDouble(Entry::salary);
+            case "quantity" -> Comparator.comparingInt(Entry::quantity);
+            case "createdAt" -> Comparator.comparing(Entry::createdAt, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "updatedAt" -> Comparator.comparing(Entry::updatedAt, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "startDate" -> Comparator.comparing(Entry::startDate, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "endDate" -> Comparator.comparing(Entry::endDate, Comparator.nullsFirst(Comparator.naturalOrder()));
+            default -> Comparator.comparingLong(Entry::id);
+        };
+    }
+
+    // Entry giả chỉ mang sort key và id của cursor, dùng để so sánh bằng comparator của index
+    private static Entry probeFor(KeysetCursor cursor) {
+        String property = cursor.property();
+        String name = "name".equals(property) ? (String) cursor.typedValue(String.class) : null;
+        return new Entry(
+                cursor.id(),
+                name != null ? name.toLowerCase(Locale.ROOT) : null,
+                "",
+                "",
+                "",
+                null,
+                new String[0],
+                new long[0],
+                null,
+                null,
+                "salary".equals(property) ? (Double) cursor.typedValue(Double.class) : 0,
+                "quantity".equals(property) ? (Integer) cursor.typedValue(Integer.class) : 0,
+                false,
+                "startDate".equals(property) ? (Instant) cursor.typedValue(Instant.class) : null,
+                "endDate".equals(property) ? (Instant) cursor.typedValue(Instant.class) : null,
+                "createdAt".equals(property) ? (Instant) cursor.typedValue(Instant.class) : null,
+                "updatedAt".equals(property) ? (Instant) cursor.typedValue(Instant.class) : null);
+    }
+
+    private void clear() {
+        markChanged();
+        labels.clear();
+        slotByJobId.clear();
+        liveSlots.clear();
+        Arrays.fill(entries, null);
+        locationPostings.clear();
+        skillPostings.clear();
+        levelPostings.clear();
+        categoryPostings.clear();
+        trigramPostings.clear();
+        bigramPostings.clear();
+        salaryCount = 0;
+    }
+
+    private void upsertLocked(Entry entry) {
+        removeLocked(entry.id());
+        markChanged();
+
+        int slot = liveSlots.nextClearBit(0);
+        if (slot >= entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(entries.length * 2, slot + 1));
+        }
+        entries[slot] = entry;
+        slotByJobId.put(entry.id(), slot);
+        liveSlots.set(slot);
+
+        if (entry.location() != null) {
+            locationPostings.computeIfAbsent(entry.location(), k -> new BitSet()).set(slot);
+        }
+        for (String skill : entry.skills()) {
+            skillPostings.computeIfAbsent(skill, k -> new BitSet()).set(slot);
+        }
+        if (entry.level() != null) {
+            levelPostings.computeIfAbsent(entry.level(), k -> new BitSet()).set(slot);
+        }
+        if (entry.category() != null) {
+            categoryPostings.computeIfAbsent(entry.category(), k -> new BitSet()).set(slot);
+        }
+        for (String trigram : entryGrams(entry, 3)) {
+            trigramPostings.computeIfAbsent(trigram, k -> new BitSet()).set(slot);
+        }
+        for (String bigram : entryGrams(entry, 2)) {
+            bigramPostings.computeIfAbsent(bigram, k -> new BitSet()).set(slot);
+        }
+        insertSalary(entry.salary(), slot);
+    }
+
+    private void removeLocked(long jobId) {
+        Integer slot = slotByJobId.remove(jobId);
+        if (slot == null) {
+            return;
+        }
+        markChanged();
+        Entry entry = entries[slot];
+        entries[slot] = null;
+        liveSlots.clear(slot);
+
+        clearPosting(locationPostings, entry.location(), slot);
+        for (String skill : entry.skills()) {
+            clearPosting(skillPostings, skill, slot);
+        }
+        clearPosting(levelPostings, entry.level(), slot);
+        clearPosting(categoryPostings, entry.category(), slot);
+        for (String trigram : entryGrams(entry, 3)) {
+            clearPosting(trigramPostings, trigram, slot);
+        }
+        for (String bigram : entryGrams(entry, 2)) {
+            clearPosting(bigramPostings, bigram, slot);
+        }
+        removeSalary(entry.salary(), slot);
+    }
+
+    private static <K> void clearPosting(Map<K, BitSet> postings, K key, int slot) {
+        if (key == null) {
+            return;
+        }
+        BitSet posting = postings.get(key);
+        if (posting != null) {
+            posting.clear(slot);
+            if (posting.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    private void insertSalary(double salary, int slot) {
+        if (salaryCount == sortedSalaries.length) {
+            sortedSalaries = Arrays.copyOf(sortedSalaries, salaryCount * 2);
+            slotsBySalary = Arrays.copyOf(slotsBySalary, salaryCount * 2);
+        }
+        int pos = upperBound(salary);
+        System.arraycopy(sortedSalaries, pos, sortedSalaries, pos + 1, salaryCount - pos);
+        System.arraycopy(slotsBySalary, pos, slotsBySalary, pos + 1, salaryCount - pos);
+        sortedSalaries[pos] = salary;
+        slotsBySalary[pos] = slot;
+        salaryCount++;
+    }
+
+    private void removeSalary(double salary, int slot) {
+        for (int pos = lowerBound(salary); pos < salaryCount && sortedSalaries[pos] == salary; pos++) {
+            if (slotsBySalary[pos] == slot) {
+                System.arraycopy(sortedSalaries, pos + 1, sortedSalaries, pos, salaryCount - pos - 1);
+                System.arraycopy(slotsBySalary, pos + 1, slotsBySalary, pos, salaryCount - pos - 1);
+                salaryCount--;
+                return;
+            }
+        }
+    }
+
+    private void markChanged() {
+        version.incrementAndGet();
+        synchronized (facetCache) {
+            facetCache.clear();
+        }
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static Entry toEntry(Job job) {
+        String[] skills = job.getSkills() == null
+                ? new String[0]
+                : job.getSkills().stream()
+                        .map(Skill::getName)
+                        .filter(Objects::nonNull)
+                        .map(JobSearchIndex::key)
+                        .distinct()
+                        .toArray(String[]::new);
+
+        long[] skillIds = job.getSkills() == null
+                ? new long[0]
+                : job.getSkills().stream().mapToLong(Skill::getId).distinct().sorted().toArray();
+
+        String skillNames = job.getSkills() == null
+                ? ""
+                : job.getSkills().stream()
+                        .map(Skill::getName)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.joining(" "));
+
+        return new Entry(
+                job.getId(),
+                job.getName() != null ? job.getName().toLowerCase(Locale.ROOT) : "",
+                TextNormalizer.fold(job.getName()),
+                TextNormalizer.fold(job.getCompany() != null ? job.getCompany().getName() : null),
+                TextNormalizer.fold(skillNames),
+                locationKey(job.getLocation()),
+                skills,
+                skillIds,
+                job.getLevel(),
+                job.getCategory() != null ? key(job.getCategory().getName()) : null,
+                job.getSalary(),
+                job.getQuantity(),
+                job.isActive(),
+                job.getStartDate(),
+                job.getEndDate(),
+                job.getCreatedAt(),
+                job.getUpdatedAt());
+    }
+
+    private static void rememberLabels(Map<String, String> target, Job job) {
+        String location = locationKey(job.getLocation());
+        if (location != null) {
+            int locationId = LocationMatcher.locationId(job.getLocation());
+            target.putIfAbsent(location, locationId != LocationMatcher.UNKNOWN_LOCATION_ID
+                    ? LocationMatcher.getCanonicalName(locationId)
+                    : job.getLocation().trim());
+        }
+        if (job.getSkills() != null) {
+            job.getSkills().forEach(skill -> rememberLabel(target, skill.getName()));
+        }
+        if (job.getCategory() != null) {
+            rememberLabel(target, job.getCategory().getName());
+        }
+    }
+
+    private static void rememberLabel(Map<String, String> target, String value) {
+        String key = key(value);
+        if (key != null) {
+            target.putIfAbsent(key, value.trim());
+        }
+    }
+
+    /**
+     * So sánh không phân biệt hoa thường, giống collation mặc định của MySQL
+     */
+    static String key(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Location có trong từ điển dùng key theo ID tỉnh/thành (các alias như "TP.HCM" / "Hồ Chí Minh"
+     * chung một key và một facet), location khác dùng key như các tiêu chí còn lại
+     */
+    static String locationKey(String value) {
+        String key = key(value);
+        if (key == null) {
+            return null;
+        }
+        int locationId = LocationMatcher.locationId(value);
+        return locationId != LocationMatcher.UNKNOWN_LOCATION_ID ? "#" + locationId : key;
+    }
+
+    // name: lowercase để sort, folded*: đã bỏ dấu để tìm keyword / companyName
+    private record Entry(
+            long id,
+            String name,
+            String foldedName,
+            String foldedCompany,
+            String foldedSkills,
+            String location,
+            String[] skills,
+            long[] skillIds,
+            LevelEnum level,
+            String category,
+            double salary,
+            int quantity,
+            boolean active,
+            Instant startDate,
+            Instant endDate,
+            Instant createdAt,
+            Instant updatedAt) {
+    }
+
+    /**
+     * Bộ đếm facet: chỉ tính job đang active và chưa quá endDate
+     */
+    private static final class FacetCounter {
+        private final Instant now;
+        private long total;
+        private final Map<String, long[]> locations = new HashMap<>();
+        private final Map<String, long[]> skills = new HashMap<>();
+        private final Map<LevelEnum, long[]> levels = new EnumMap<>(LevelEnum.class);
+        private final Map<String, long[]> categories = new HashMap<>();
+        private final long[] salaryBuckets = new long[SALARY_BUCKET_BOUNDS.length + 1];
+
+        FacetCounter(Instant now) {
+            this.now = now;
+        }
+
+        void add(Entry entry) {
+            if (!entry.active() || (entry.endDate() != null && !entry.endDate().isAfter(now))) {
+                return;
+            }
+            total++;
+            increment(locations, entry.location());
+            for (String skill : entry.skills()) {
+                increment(skills, skill);
+            }
+            increment(levels, entry.level());
+            increment(categories, entry.category());
+
+            int bucket = 0;
+            while (bucket < SALARY_BUCKET_BOUNDS.length && entry.salary() >= SALARY_BUCKET_BOUNDS[bucket]) {
+                bucket++;
+            }
+            salaryBuckets[bucket]++;
+        }
+
+        ResJobFacetsDTO toDTO(Map<String, String> labels) {
+            ResJobFacetsDTO dto = new ResJobFacetsDTO();
+            dto.setTotal(total);
+            dto.setLocations(toCounts(locations, key -> labels.getOrDefault(key, key)));
+            dto.setSkills(toCounts(skills, key -> labels.getOrDefault(key, key)));
+            dto.setLevels(toCounts(levels, LevelEnum::name));
+            dto.setCategories(toCounts(categories, key -> labels.getOrDefault(key, key)));
+
+            List<ResJobFacetsDTO.SalaryBucket> salaryRanges = new ArrayList<>(salaryBuckets.length);
+            for (int i = 0; i < salaryBuckets.length; i++) {
+                salaryRanges.add(new ResJobFacetsDTO.SalaryBucket(
+                        i == 0 ? null : SALARY_BUCKET_BOUNDS[i - 1],
+                        i == SALARY_BUCKET_BOUNDS.length ? null : SALARY_BUCKET_BOUNDS[i],
+                        salaryBuckets[i]));
+            }
+            dto.setSalaryRanges(salaryRanges);
+            return dto;
+        }
+
+        private static <K> void increment(Map<K, long[]> counts, K key) {
+            if (key != null) {
+                counts.computeIfAbsent(key, k -> new long[1])[0]++;
+            }
+        }
+
+        // Sắp xếp theo số lượng giảm dần, cùng số lượng thì theo tên
+        private static <K> List<ResJobFacetsDTO.FacetCount> toCounts(Map<K, long[]> counts, Function<K, String> label) {
+            List<ResJobFacetsDTO.FacetCount> result = new ArrayList<>(counts.size());
+            counts.forEach((key, count) -> result.add(new ResJobFacetsDTO.FacetCount(label.apply(key), count[0])));
+            result.sort(Comparator.comparingLong(ResJobFacetsDTO.FacetCount::getCount).reversed()
+                    .thenComparing(ResJobFacetsDTO.FacetCount::getValue));
+            return result;
+        }
+    }
+
+    /**
+     * Tiêu chí search đã được chuẩn hóa, null nghĩa là không lọc theo tiêu chí đó.
+     * keyword và companyName đã được bỏ dấu.
+     */
+    public record Criteria(
+            String keyword,
+            Set<String> locations,
+            Set<String> skills,
+            Double minSalary,
+            Double maxSalary,
+            Set<LevelEnum> levels,
+            String companyName,
+            Set<String> categories) {
+
+        public static Criteria of(
+                String keyword, String location, String skills,
+                Double minSalary, Double maxSalary, String level, String companyName, String categories) {
+            return new Criteria(
+                    keyword != null && !keyword.trim().isEmpty() ? TextNormalizer.fold(keyword) : null,
+                    splitLocationKeys(location),
+                    splitKeys(skills),
+                    minSalary,
+                    maxSalary,
+                    parseLevels(level),
+                    companyName != null && !companyName.trim().isEmpty()
+                            ? TextNormalizer.fold(companyName)
+                            : null,
+                    splitKeys(categories));
+        }
+
+        String[] keywordTokens() {
+            return keyword.split(" ");
+        }
+
+        private static Set<LevelEnum> parseLevels(String level) {
+            if (level == null || level.trim().isEmpty()) {
+                return null;
+            }
+            Set<LevelEnum> levels = EnumSet.noneOf(LevelEnum.class);
+            for (String value : level.split(",")) {
+                levels.add(LevelEnum.valueOf(value.trim()));
+            }
+            return levels;
+        }
+
+        private static Set<String> splitLocationKeys(String value) {
+            Set<String> keys = splitKeys(value);
+            if (keys == null) {
+                return null;
+            }
+            Set<String> locationKeys = new LinkedHashSet<>();
+            for (String key : keys) {
+                locationKeys.add(locationKey(key));
+            }
+            return locationKeys;
+        }
+
+        private static Set<String> splitKeys(String value) {
+            if (value == null || value.trim().isEmpty()) {
+                return null;
+            }
+            Set<String> keys = new LinkedHashSet<>();
+            for (String part : value.split(",")) {
+                String key = key(part);
+                if (key != null) {
+                    keys.add(key);
+                }
+            }
+            return keys;
+        }
+    }
+}
@@ -9,14 +9,18 @@ import java.util.Collections;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import vn.hoidanit.jobhunter.domain.Company;
 import vn.hoidanit.jobhunter.domain.Job;
 import vn.hoidanit.jobhunter.domain.Skill;
 import vn.hoidanit.jobhunter.domain.response.ResultPaginationDTO;
 import vn.hoidanit.jobhunter.domain.response.job.ResCreateJobDTO;
+import vn.hoidanit.jobhunter.domain.response.job.ResJobFacetsDTO;
+import vn.hoidanit.jobhunter.domain.response.job.ResJobSummaryDTO;
 import vn.hoidanit.jobhunter.domain.response.job.ResUpdateJobDTO;
 import vn.hoidanit.jobhunter.repository.CompanyRepository;
 import vn.hoidanit.jobhunter.repository.JobRepository;
@@ -26,6 +30,8 @@ import vn.hoidanit.jobhunter.repository.SkillRepository;
 import vn.hoidanit.jobhunter.repository.UserRepository;
 import vn.hoidanit.jobhunter.domain.User;
 import vn.hoidanit.jobhunter.domain.JobAlert;
+import vn.hoidanit.jobhunter.util.KeysetCursor;
+import vn.hoidanit.jobhunter.util.LocationMatcher;
 import vn.hoidanit.jobhunter.util.SecurityUtil;
 import vn.hoidanit.jobhunter.util.constant.LevelEnum;
 import vn.hoidanit.jobhunter.util.error.IdInvalidException;
@@ -44,6 +50,10 @@ public class JobService {
     private final UserRepository userRepository;
     private final JobAlertService jobAlertService;
     private final JobAlertRepository jobAlertRepository;
+    private final JobSearchIndex jobSearchIndex;
+    private final JobExpiryService jobExpiryService;
+    private final JobMatchingCache jobMatchingCache;
+    private final NewJobNotificationBatcher newJobNotificationBatcher;
 
     public JobService(JobRepository jobRepository,
             SkillRepository skillRepository,
@@ -51,7 +61,11 @@ public class JobService {
             ResumeRepository resumeRepository,
             UserRepository userRepository,
             JobAlertService jobAlertService,
-            JobAlertRepository jobAlertRepository) {
+            JobAlertRepository jobAlertRepository,
+            JobSearchIndex jobSearchIndex,
+            JobExpiryService jobExpiryService,
+            JobMatchingCache jobMatchingCache,
+            NewJobNotificationBatcher newJobNotificationBatcher) {
         this.jobRepository = jobRepository;
         this.skillRepository = skillRepository;
         this.companyRepository = companyRepository;
@@ -59,30 +73,15 @@ public class JobService {
         this.userRepository = userRepository;
         this.jobAlertService = jobAlertService;
         this.jobAlertRepository = jobAlertRepository;
+        this.jobSearchIndex = jobSearchIndex;
+        this.jobExpiryService = jobExpiryService;
+        this.jobMatchingCache = jobMatchingCache;
+        this.newJobNotificationBatcher = newJobNotificationBatcher;
     }
 
     public Optional<Job> fetchJobById(long id) {
-        Optional<Job> jobOptional = this.jobRepository.findById(id);
-        if (jobOptional.isPresent()) {
-            Job job = jobOptional.get();
-            // Tự động cập nhật trạng thái active dựa trên endDate
-            updateJobActiveStatus(job);
-            return Optional.of(job);
-        }
-        return jobOptional;
-    }
-
-    private void updateJobActiveStatus(Job job) {
-        if (job.getEndDate() != null) {
-            java.time.Instant now = java.time.Instant.now();
-            boolean shouldBeActive = job.getEndDate().isAfter(now);
-
-            // Chỉ cập nhật nếu trạng thái hiện tại khác với trạng thái mong muốn
-            if (job.isActive() != shouldBeActive) {
-                job.setActive(shouldBeActive);
-                this.jobRepository.save(job);
-            }
-        }
+        // Trạng thái active do JobExpiryService cập nhật, API đọc không ghi vào database
+        return this.jobRepository.findById(id);
     }
 
     public ResCreateJobDTO create(Job j) throws IdInvalidException {
@@ -124,28 +123,14 @@ public class JobService {
 
         // create job
         Job currentJob = this.jobRepository.save(j);
+        this.jobSearchIndex.refresh(currentJob.getId());
+        this.jobExpiryService.onJobSaved(currentJob);
 
-        // Gửi email thông báo cho users có skills phù hợp (async - không block)
-        // Sử dụng @Async để không block request
-        // Debug logs disabled
-        // System.out.println(">>> [JobService] Job created - ID: " + currentJob.getId() + ", Active: " + currentJob.isActive());
-        // System.out.println(">>> [JobService] Job skills count: " + (currentJob.getSkills() != null ? currentJob.getSkills().size() : 0));
-        
+        // Gửi email thông báo cho users có skills phù hợp: job được gom theo lô
+        // (NewJobNotificationBatcher) để mỗi người nhận chỉ một email cho nhiều job đăng liên tiếp
         if (currentJob.isActive() && currentJob.getSkills() != null && !currentJob.getSkills().isEmpty()) {
-            try {
-                // System.out.println(">>> [JobService] Triggering email notification for job ID: " + currentJob.getId());
-                // Gọi async để không block transaction
-                this.jobAlertService.sendNotificationForNewJobAsync(currentJob);
-                // System.out.println(">>> [JobService] Email notification triggered successfully");
-            } catch (Exception e) {
-                // System.err.println(">>> [JobService] Lỗi khi trigger gửi email thông báo: " + e.getMessage());
-                // e.printStackTrace();
-                // Không throw exception để không ảnh hưởng đến việc tạo job
-            }
+            this.newJobNotificationBatcher.submit(currentJob);
         }
-        // else {
-        //     System.out.println(">>> [JobService] Không gửi email - Job không active hoặc không có skills");
-        // }
 
         // convert response
         ResCreateJobDTO dto = new ResCreateJobDTO();
@@ -226,6 +211,8 @@ public class JobService {
 
         // update job
         Job currentJob = this.jobRepository.save(jobInDB);
+        this.jobSearchIndex.refresh(currentJob.getId());
+        this.jobExpiryService.onJobSaved(currentJob);
 
         // convert response
         ResUpdateJobDTO dto = new ResUpdateJobDTO();
@@ -256,10 +243,35 @@ public class JobService {
             throw new IdInvalidException("Công việc đã có ứng viên đăng ký");
         }
         this.jobRepository.deleteById(id);
+        this.jobSearchIndex.remove(id);
     }
 
+    @Transactional(readOnly = true)
     public ResultPaginationDTO fetchAll(Specification<Job> spec, Pageable pageable) {
-        // Check if current user là HR (kể cả đang chờ duyệt), nếu vậy chỉ xem job của công ty mình
+        Specification<Job> finalSpec = restrictToCurrentHrCompany(spec);
+
+        Page<ResJobSummaryDTO> pageUser = this.jobRepository.findSummaryPage(finalSpec, pageable);
+
+        ResultPaginationDTO rs = new ResultPaginationDTO();
+        ResultPaginationDTO.Meta mt = new ResultPaginationDTO.Meta();
+
+        mt.setPage(pageable.getPageNumber() + 1);
+        mt.setPageSize(pageable.getPageSize());
+
+        mt.setPages(pageUser.getTotalPages());
+        mt.setTotal(pageUser.getTotalElements());
+
+        rs.setMeta(mt);
+
+        rs.setResult(pageUser.getContent());
+
+        return rs;
+    }
+
+    /**
+     * Nếu current user là HR (kể cả đang chờ duyệt) thì chỉ xem job của công ty mình
+     */
+    private Specification<Job> restrictToCurrentHrCompany(Specification<Job> spec) {
         Specification<Job> finalSpec = spec;
         try {
             String email = SecurityUtil.getCurrentUserLogin().orElse(null);
@@ -286,112 +298,176 @@ public class JobService {
             // If error getting current user, continue with original spec
         }
 
-        Page<Job> pageUser = this.jobRepository.findAll(finalSpec, pageable);
-
-        // Tự động cập nhật trạng thái active cho tất cả job trong kết quả
-        pageUser.getContent().forEach(this::updateJobActiveStatus);
-
-        ResultPaginationDTO rs = new ResultPaginationDTO();
-        ResultPaginationDTO.Meta mt = new ResultPaginationDTO.Meta();
-
-        mt.setPage(pageable.getPageNumber() + 1);
-        mt.setPageSize(pageable.getPageSize());
-
-        mt.setPages(pageUser.getTotalPages());
-        mt.setTotal(pageUser.getTotalElements());
-
-        rs.setMeta(mt);
-
-        rs.setResult(pageUser.getContent());
-
-        return rs;
+        return finalSpec;
     }
 
+    @Transactional(readOnly = true)
     public ResultPaginationDTO userSearchAndFilter(
             String keyword, String location, String skills,
             Double minSalary, Double maxSalary, String level, String companyName, String categories, Pageable pageable) {
 
+        // Ưu tiên index in-memory, HR vẫn đi qua database vì chỉ được xem job của công ty mình
+        if (this.jobSearchIndex.isReady()
+                && this.jobSearchIndex.supportsSort(pageable.getSort())
+                && !isHrLike(getCurrentUserOrNull())) {
+            JobSearchIndex.Criteria criteria = JobSearchIndex.Criteria.of(
+                    keyword, location, skills, minSalary, maxSalary, level, companyName, categories);
+            Page<Long> pageIds = this.jobSearchIndex.search(criteria, pageable);
+            List<ResJobSummaryDTO> jobs = this.jobRepository.findSummariesInOrder(pageIds.getContent());
+
+            ResultPaginationDTO rs = new ResultPaginationDTO();
+            ResultPaginationDTO.Meta mt = new ResultPaginationDTO.Meta();
+            mt.setPage(pageable.getPageNumber() + 1);
+            mt.setPageSize(pageable.getPageSize());
+            mt.setPages(pageIds.getTotalPages());
+            mt.setTotal(pageIds.getTotalElements());
+            rs.setMeta(mt);
+            rs.setResult(jobs);
+            return rs;
+        }
+
         try {
             System.out.println("Search parameters - keyword: " + keyword +
                     ", location: " + location + ", skills: " + skills +
                     ", minSalary: " + minSalary + ", maxSalary: " + maxSalary + ", level: " + level +
                     ", companyName: " + companyName + ", categories: " + categories);
 
-            // Xây dựng specification cho search và filter
-            Specification<Job> spec = (root, query, criteriaBuilder) -> {
-                query.distinct(true);
-                List<jakarta.persistence.criteria.Predicate> predicates = new ArrayList<>();
+            Specification<Job> spec = buildUserSearchSpecification(
+                    keyword, location, skills, minSalary, maxSalary, level, companyName, categories);
 
-                // Search logic - tìm kiếm theo tên job
-                if (keyword != null && !keyword.trim().isEmpty()) {
-                    predicates.add(criteriaBuilder.like(criteriaBuilder.lower(root.get("name")),
-                            "%" + keyword.toLowerCase() + "%"));
-                }
+            return fetchAll(spec, pageable);
 
-                // Filter logic - lọc theo các tiêu chí cụ thể
-                if (location != null && !location.trim().isEmpty()) {
-                    String[] locationArray = location.split(",");
-                    predicates.add(root.get("location").in(Arrays.asList(locationArray)));
-                }
+        } catch (Exception e) {
+            System.err.println("Error in userSearchAndFilter: " + e.getMessage());
+            e.printStackTrace();
+            throw e;
+        }
+    }
 
-                if (skills != null && !skills.trim().isEmpty()) {
-                    String[] skillArray = skills.split(",");
-                    System.out.println("Adding skills filter: " + Arrays.toString(skillArray));
-                    // Sử dụng join đơn giản
-                    predicates.add(root.join("skills").get("name").in(Arrays.asList(skillArray)));
-                }
+    /**
+     * Số job active theo từng facet (location, skill, level, category, khoảng lương)
+     * cho cùng bộ lọc của user-search
+     */
+    @Transactional(readOnly = true)
+    public ResJobFacetsDTO fetchFacets(
+            String keyword, String location, String skills,
+            Double minSalary, Double maxSalary, String level, String companyName, String categories) {
+        if (this.jobSearchIndex.isReady() && !isHrLike(getCurrentUserOrNull())) {
+            return this.jobSearchIndex.facets(JobSearchIndex.Criteria.of(
+                    keyword, location, skills, minSalary, maxSalary, level, companyName, categories));
+        }
 
-                if (minSalary != null) {
-                    System.out.println("Adding minSalary filter: " + minSalary);
-                    predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("salary"), minSalary));
-                }
+        // Index chưa sẵn sàng hoặc HR: lọc bằng database rồi đếm trong một lần duyệt
+        Specification<Job> spec = restrictToCurrentHrCompany(buildUserSearchSpecification(
+                keyword, location, skills, minSalary, maxSalary, level, companyName, categories));
+        spec = spec.and((root, query, criteriaBuilder) -> criteriaBuilder.and(
+                criteriaBuilder.equal(root.get("active"), true),
+                criteriaBuilder.or(
+                        criteriaBuilder.isNull(root.get("endDate")),
+                        criteriaBuilder.greaterThan(root.get("endDate"), java.time.Instant.now()))));
+        return JobSearchIndex.facetsOf(this.jobRepository.findAll(spec));
+    }
 
-                if (maxSalary != null) {
-                    System.out.println("Adding maxSalary filter: " + maxSalary);
-                    predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("salary"), maxSalary));
-                }
+    /**
+     * Xây dựng specification cho search và filter (đường database)
+     */
+    private Specification<Job> buildUserSearchSpecification(
+            String keyword, String location, String skills,
+            Double minSalary, Double maxSalary, String level, String companyName, String categories) {
+        return (root, query, criteriaBuilder) -> {
+            query.distinct(true);
+            List<jakarta.persistence.criteria.Predicate> predicates = new ArrayList<>();
 
-                if (level != null && !level.trim().isEmpty()) {
-                    String[] levelArray = level.split(",");
-                    List<LevelEnum> levelEnums = Arrays.stream(levelArray)
-                            .map(LevelEnum::valueOf)
-                            .collect(Collectors.toList());
-                    System.out.println("Adding level filter: " + levelEnums);
-                    predicates.add(root.get("level").in(levelEnums));
-                }
+            // Search logic - tìm kiếm theo tên job
+            if (keyword != null && !keyword.trim().isEmpty()) {
+                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(root.get("name")),
+                        "%" + keyword.toLowerCase() + "%"));
+            }
 
-                // Search by company name
-                if (companyName != null && !companyName.trim().isEmpty()) {
-                    predicates.add(criteriaBuilder.like(
-                        criteriaBuilder.lower(root.join("company").get("name")),
-                        "%" + companyName.toLowerCase() + "%"
-                    ));
-                }
+            // Filter logic - lọc theo các tiêu chí cụ thể
+            if (location != null && !location.trim().isEmpty()) {
+                predicates.add(buildLocationPredicate(root, criteriaBuilder, location));
+            }
 
-                // Filter by categories
-                if (categories != null && !categories.trim().isEmpty()) {
-                    String[] categoryArray = categories.split(",");
-                    System.out.println("Adding categories filter: " + Arrays.toString(categoryArray));
-                    // Filter by category name or slug
-                    predicates.add(root.join("category").get("name").in(Arrays.asList(categoryArray)));
-                }
+            if (skills != null && !skills.trim().isEmpty()) {
+                String[] skillArray = skills.split(",");
+                System.out.println("Adding skills filter: " + Arrays.toString(skillArray));
+                // Sử dụng join đơn giản
+                predicates.add(root.join("skills").get("name").in(Arrays.asList(skillArray)));
+            }
 
-                // Debug: In ra tất cả predicates
-                System.out.println("Total predicates: " + predicates.size());
-                for (int i = 0; i < predicates.size(); i++) {
-                    System.out.println("Predicate " + i + ": " + predicates.get(i));
-                }
+            if (minSalary != null) {
+                System.out.println("Adding minSalary filter: " + minSalary);
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("salary"), minSalary));
+            }
 
-                return criteriaBuilder.and(predicates.toArray(new jakarta.persistence.criteria.Predicate[0]));
-            };
+            if (maxSalary != null) {
+                System.out.println("Adding maxSalary filter: " + maxSalary);
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("salary"), maxSalary));
+            }
 
-            return fetchAll(spec, pageable);
+            if (level != null && !level.trim().isEmpty()) {
+                String[] levelArray = level.split(",");
+                List<LevelEnum> levelEnums = Arrays.stream(levelArray)
+                        .map(LevelEnum::valueOf)
+                        .collect(Collectors.toList());
+                System.out.println("Adding level filter: " + levelEnums);
+                predicates.add(root.get("level").in(levelEnums));
+            }
 
-        } catch (Exception e) {
-            System.err.println("Error in userSearchAndFilter: " + e.getMessage());
-            e.printStackTrace();
-            throw e;
+            // Search by company name
+            if (companyName != null && !companyName.trim().isEmpty()) {
+                predicates.add(criteriaBuilder.like(
+                    criteriaBuilder.lower(root.join("company").get("name")),
+                    "%" + companyName.toLowerCase() + "%"
+                ));
+            }
+
+            // Filter by categories
+            if (categories != null && !categories.trim().isEmpty()) {
+                String[] categoryArray = categories.split(",");
+                System.out.println("Adding categories filter: " + Arrays.toString(categoryArray));
+                // Filter by category name or slug
+                predicates.add(root.join("category").get("name").in(Arrays.asList(categoryArray)));
+            }
+
+            // Debug: In ra tất cả predicates
+            System.out.println("Total predicates: " + predicates.size());
+            for (int i = 0; i < predicates.size(); i++) {
+                System.out.println("Predicate " + i + ": " + predicates.get(i));
+            }
+
+            return criteriaBuilder.and(predicates.toArray(new jakarta.persistence.criteria.Predicate[0]));
+        };
+    }
+
+    /**
+     * Location có trong từ điển được lọc theo location_id (có index, "TP.HCM" và "Hồ Chí Minh" cùng một ID),
+     * location ngoài từ điển vẫn so khớp chuỗi như cũ
+     */
+    private static jakarta.persistence.criteria.Predicate buildLocationPredicate(
+            jakarta.persistence.criteria.Root<Job> root,
+            jakarta.persistence.criteria.CriteriaBuilder criteriaBuilder,
+            String location) {
+        List<Integer> locationIds = new ArrayList<>();
+        List<String> rawLocations = new ArrayList<>();
+        for (String value : location.split(",")) {
+            int locationId = LocationMatcher.locationId(value);
+            if (locationId != LocationMatcher.UNKNOWN_LOCATION_ID) {
+                locationIds.add(locationId);
+            } else {
+                rawLocations.add(value);
+            }
         }
+
+        List<jakarta.persistence.criteria.Predicate> options = new ArrayList<>();
+        if (!locationIds.isEmpty()) {
+            options.add(root.get("locationId").in(locationIds));
+        }
+        if (!rawLocations.isEmpty()) {
+            options.add(root.get("location").in(rawLocations));
+        }
+        return criteriaBuilder.or(options.toArray(new jakarta.persistence.criteria.Predicate[0]));
     }
 
     // Backward-compatible overload (keeps existing callers working)
@@ -400,16 +476,14 @@ public class JobService {
             Double minSalary, Double maxSalary, String level, Pageable pageable) {
         return userSearchAndFilter(keyword, location, skills, minSalary, maxSalary, level, null, null, pageable);
     }
+    @Transactional(readOnly = true)
     public ResultPaginationDTO fetchJobsByCompany(long companyId, Pageable pageable) {
         // Tạo specification để filter theo company ID
         Specification<Job> spec = (root, query, criteriaBuilder) -> {
             return criteriaBuilder.equal(root.get("company").get("id"), companyId);
         };
 
-        Page<Job> pageJobs = this.jobRepository.findAll(spec, pageable);
-
-        // Tự động cập nhật trạng thái active cho tất cả job trong kết quả
-        pageJobs.getContent().forEach(this::updateJobActiveStatus);
+        Page<ResJobSummaryDTO> pageJobs = this.jobRepository.findSummaryPage(spec, pageable);
 
         ResultPaginationDTO rs = new ResultPaginationDTO();
         ResultPaginationDTO.Meta mt = new ResultPaginationDTO.Meta();
@@ -425,72 +499,152 @@ public class JobService {
         return rs;
     }
 
+    /**
+     * Keyset pagination cho GET /jobs: trả về nextCursor thay vì pages/total
+     */
+    @Transactional(readOnly = true)
+    public ResultPaginationDTO fetchAllByCursor(Specification<Job> spec, Pageable pageable, String cursor)
+            throws IdInvalidException {
+        return fetchByCursor(restrictToCurrentHrCompany(spec), pageable, cursor);
+    }
+
+    /**
+     * Keyset pagination cho GET /jobs/company/{companyId}
+     */
+    @Transactional(readOnly = true)
+    public ResultPaginationDTO fetchJobsByCompanyByCursor(long companyId, Pageable pageable, String cursor)
+            throws IdInvalidException {
+        Specification<Job> spec = (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("company").get("id"),
+                companyId);
+        return fetchByCursor(spec, pageable, cursor);
+    }
+
+    /**
+     * Keyset pagination cho GET /jobs/user-search
+     */
+    @Transactional(readOnly = true)
+    public ResultPaginationDTO userSearchAndFilterByCursor(
+            String keyword, String location, String skills,
+            Double minSalary, Double maxSalary, String level, String companyName, String categories,
+            Pageable pageable, String cursor) throws IdInvalidException {
+        Sort.Order order = KeysetCursor.orderOf(pageable.getSort());
+
+        if (this.jobSearchIndex.isReady()
+                && this.jobSearchIndex.supportsSort(Sort.by(order))
+                && !isHrLike(getCurrentUserOrNull())) {
+            KeysetCursor after = decodeCursor(cursor, order);
+            JobSearchIndex.Criteria criteria = JobSearchIndex.Criteria.of(
+                    keyword, location, skills, minSalary, maxSalary, level, companyName, categories);
+            List<Long> ids = this.jobSearchIndex.scroll(criteria, order, after, pageable.getPageSize() + 1);
+            return buildCursorResult(ids, pageable, order);
+        }
+
+        Specification<Job> spec = buildUserSearchSpecification(
+                keyword, location, skills, minSalary, maxSalary, level, companyName, categories);
+        return fetchByCursor(restrictToCurrentHrCompany(spec), pageable, cursor);
+    }
+
+    private ResultPaginationDTO fetchByCursor(Specification<Job> spec, Pageable pageable, String cursor)
+            throws IdInvalidException {
+        Sort.Order order = KeysetCursor.orderOf(pageable.getSort());
+        KeysetCursor after = decodeCursor(cursor, order);
+
+        Specification<Job> keysetSpec = after != null
+                ? Specification.where(spec).and(after.toSpecification())
+                : Specification.where(spec);
+
+        // Lấy dư 1 ID để biết còn trang sau hay không, không cần COUNT; entity load một lần ở buildCursorResult
+        List<Long> ids = this.jobRepository.findIds(keysetSpec, KeysetCursor.sortOf(order), pageable.getPageSize() + 1);
+        return buildCursorResult(ids, pageable, order);
+    }
+
+    private KeysetCursor decodeCursor(String cursor, Sort.Order order) throws IdInvalidException {
+        return cursor == null || cursor.isBlank() ? null : KeysetCursor.decode(cursor, order);
+    }
+
+    private ResultPaginationDTO buildCursorResult(List<Long> ids, Pageable pageable, Sort.Order order) {
+        boolean hasNext = ids.size() > pageable.getPageSize();
+        List<ResJobSummaryDTO> jobs = this.jobRepository.findSummariesInOrder(
+                hasNext ? ids.subList(0, pageable.getPageSize()) : ids);
+
+        ResultPaginationDTO rs = new ResultPaginationDTO();
+        ResultPaginationDTO.Meta mt = new ResultPaginationDTO.Meta();
+        mt.setPageSize(pageable.getPageSize());
+        if (hasNext && !jobs.isEmpty()) {
+            mt.setNextCursor(KeysetCursor.of(order, jobs.get(jobs.size() - 1)).encode());
+        }
+        rs.setMeta(mt);
+        rs.setResult(jobs);
+        return rs;
+    }
+
     /**
      * Tìm công việc phù hợp với kỹ năng của user hiện tại
      */
+    @Transactional(readOnly = true)
     public ResultPaginationDTO fetchMatchingJobsForCurrentUser(Pageable pageable) {
         String email = SecurityUtil.getCurrentUserLogin().orElse("");
-        if (email.isEmpty()) {
-            ResultPaginationDTO rs = new ResultPaginationDTO();
-            ResultPaginationDTO.Meta mt = new ResultPaginationDTO.Meta();
-            mt.setPage(1);
-            mt.setPageSize(pageable.getPageSize());
-            mt.setPages(0);
-            mt.setTotal(0);
-            rs.setMeta(mt);
-            rs.setResult(Collections.emptyList());
-            return rs;
+        List<Long> skillIds = email.isEmpty() ? List.of() : this.jobMatchingCache.getSkillIds(email);
+        if (skillIds.isEmpty()) {
+            return createEmptyResult(pageable);
         }
 
-        User user = this.userRepository.findByEmail(email);
-        if (user == null || user.getSkills() == null || user.getSkills().isEmpty()) {
-            ResultPaginationDTO rs = new ResultPaginationDTO();
-            ResultPaginationDTO.Meta mt = new ResultPaginationDTO.Meta();
-            mt.setPage(1);
-            mt.setPageSize(pageable.getPageSize());
-            mt.setPages(0);
-            mt.setTotal(0);
-            rs.setMeta(mt);
-            rs.setResult(Collections.emptyList());
-            return rs;
+        // Danh sách ID job phù hợp được cache theo tập skill, chỉ load job của trang hiện tại
+        long[] jobIds = this.jobMatchingCache.getMatchingJobIds(skillIds, pageable.getSort());
+        int total = jobIds.length;
+        int from = (int) Math.min(pageable.getOffset(), total);
+        int to = Math.min(from + pageable.getPageSize(), total);
+        List<Long> pageIds = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            pageIds.add(jobIds[i]);
         }
 
-        // Tìm các job có chứa ít nhất một skill của user
-        Specification<Job> spec = (root, query, criteriaBuilder) -> {
-            List<jakarta.persistence.criteria.Predicate> predicates = new ArrayList<>();
-            
-            // Job phải active
-            predicates.add(criteriaBuilder.equal(root.get("active"), true));
-            
-            // Job phải có endDate trong tương lai hoặc null
-            predicates.add(
-                criteriaBuilder.or(
-                    criteriaBuilder.isNull(root.get("endDate")),
-                    criteriaBuilder.greaterThan(root.get("endDate"), java.time.Instant.now())
-                )
-            );
-            
-            // Job phải có ít nhất một skill trùng với skills của user
-            jakarta.persistence.criteria.Join<Job, Skill> skillsJoin = root.join("skills");
-            predicates.add(skillsJoin.in(user.getSkills()));
-            
-            query.distinct(true);
-            return criteriaBuilder.and(predicates.toArray(new jakarta.persistence.criteria.Predicate[0]));
-        };
+        ResultPaginationDTO rs = new ResultPaginationDTO();
+        ResultPaginationDTO.Meta mt = new ResultPaginationDTO.Meta();
+
+        mt.setPage(pageable.getPageNumber() + 1);
+        mt.setPageSize(pageable.getPageSize());
+        mt.setPages((int) Math.ceil((double) total / pageable.getPageSize()));
+        mt.setTotal((long) total);
+
+        rs.setMeta(mt);
+        rs.setResult(this.jobRepository.findSummariesInOrder(pageIds));
+
+        return rs;
+    }
 
-        Page<Job> pageJobs = this.jobRepository.findAll(spec, pageable);
-        pageJobs.getContent().forEach(this::updateJobActiveStatus);
+    /**
+     * Công việc phù hợp với user hiện tại, xếp theo mức độ phù hợp (skill, level, lương, độ mới).
+     * Khi index chưa sẵn sàng thì trả về như fetchMatchingJobsForCurrentUser.
+     */
+    @Transactional(readOnly = true)
+    public ResultPaginationDTO fetchRankedMatchingJobsForCurrentUser(Pageable pageable) {
+        if (!this.jobSearchIndex.isReady()) {
+            return fetchMatchingJobsForCurrentUser(pageable);
+        }
+
+        String email = SecurityUtil.getCurrentUserLogin().orElse("");
+        if (email.isEmpty()) {
+            return createEmptyResult(pageable);
+        }
+        JobMatchingCache.UserProfile profile = this.jobMatchingCache.getProfile(email);
+        if (profile.skillIds().isEmpty()) {
+            return createEmptyResult(pageable);
+        }
+
+        long[] skillIds = profile.skillIds().stream().mapToLong(Long::longValue).toArray();
+        Page<Long> pageIds = this.jobSearchIndex.rankMatching(skillIds, profile.level(), profile.salary(), pageable);
 
         ResultPaginationDTO rs = new ResultPaginationDTO();
         ResultPaginationDTO.Meta mt = new ResultPaginationDTO.Meta();
 
         mt.setPage(pageable.getPageNumber() + 1);
         mt.setPageSize(pageable.getPageSize());
-        mt.setPages(pageJobs.getTotalPages());
-        mt.setTotal(pageJobs.getTotalElements());
+        mt.setPages(pageIds.getTotalPages());
+        mt.setTotal(pageIds.getTotalElements());
 
         rs.setMeta(mt);
-        rs.setResult(pageJobs.getContent());
+        rs.setResult(this.jobRepository.findSummariesInOrder(pageIds.getContent()));
 
         return rs;
     }
@@ -498,41 +652,20 @@ public class JobService {
     /**
      * Đếm số lượng công việc phù hợp với user hiện tại
      */
+    @Transactional(readOnly = true)
     public long countMatchingJobsForCurrentUser() {
         String email = SecurityUtil.getCurrentUserLogin().orElse("");
-        if (email.isEmpty()) {
+        List<Long> skillIds = email.isEmpty() ? List.of() : this.jobMatchingCache.getSkillIds(email);
+        if (skillIds.isEmpty()) {
             return 0;
         }
-
-        User user = this.userRepository.findByEmail(email);
-        if (user == null || user.getSkills() == null || user.getSkills().isEmpty()) {
-            return 0;
-        }
-
-        Specification<Job> spec = (root, query, criteriaBuilder) -> {
-            List<jakarta.persistence.criteria.Predicate> predicates = new ArrayList<>();
-            
-            predicates.add(criteriaBuilder.equal(root.get("active"), true));
-            predicates.add(
-                criteriaBuilder.or(
-                    criteriaBuilder.isNull(root.get("endDate")),
-                    criteriaBuilder.greaterThan(root.get("endDate"), java.time.Instant.now())
-                )
-            );
-            
-            jakarta.persistence.criteria.Join<Job, Skill> skillsJoin = root.join("skills");
-            predicates.add(skillsJoin.in(user.getSkills()));
-            
-            query.distinct(true);
-            return criteriaBuilder.and(predicates.toArray(new jakarta.persistence.criteria.Predicate[0]));
-        };
-
-        return this.jobRepository.count(spec);
+        return this.jobMatchingCache.getMatchingJobIds(skillIds, Sort.unsorted()).length;
     }
 
     /**
      * Tìm công việc phù hợp với job alert criteria của user hiện tại
      */
+    @Transactional(readOnly = true)
     public ResultPaginationDTO fetchMatchingJobsByJobAlert(Pageable pageable) {
         String email = SecurityUtil.getCurrentUserLogin().orElse("");
         if (email.isEmpty()) {
@@ -547,51 +680,29 @@ public class JobService {
         // Tối ưu: Query trực tiếp active alert với skills (tránh query 2 lần)
         JobAlert activeAlert = this.jobAlertRepository.findActiveByUserWithSkills(user).orElse(null);
 
-        // Lấy tất cả jobs active
-        Specification<Job> baseSpec = (root, query, criteriaBuilder) -> {
-            List<jakarta.persistence.criteria.Predicate> predicates = new ArrayList<>();
-            predicates.add(criteriaBuilder.equal(root.get("active"), true));
-            predicates.add(
+        // Job active và chưa hết hạn
+        Specification<Job> spec = (root, query, criteriaBuilder) -> criteriaBuilder.and(
+                criteriaBuilder.equal(root.get("active"), true),
                 criteriaBuilder.or(
-                    criteriaBuilder.isNull(root.get("endDate")),
-                    criteriaBuilder.greaterThan(root.get("endDate"), java.time.Instant.now())
-                )
-            );
-            query.distinct(true);
-            return criteriaBuilder.and(predicates.toArray(new jakarta.persistence.criteria.Predicate[0]));
-        };
+                        criteriaBuilder.isNull(root.get("endDate")),
+                        criteriaBuilder.greaterThan(root.get("endDate"), java.time.Instant.now())));
 
-        // Lấy tất cả jobs matching
-        // Sử dụng findAll(Specification) để lấy tất cả jobs không phân trang (có EntityGraph để load skills)
-        List<Job> allJobs = this.jobRepository.findAll(baseSpec);
-        
-        List<Job> allMatchingJobs;
-        
-        if (activeAlert == null || !this.jobAlertService.hasAnyCriteria(activeAlert)) {
-            // Không có job alert active hoặc job alert không có criteria nào, hiển thị tất cả jobs active
-            allMatchingJobs = allJobs;
-        } else {
-            // Có job alert active và có criteria, filter theo criteria
-            allMatchingJobs = allJobs.stream()
-                    .filter(job -> this.jobAlertService.isJobMatchingAlert(job, activeAlert))
-                    .collect(Collectors.toList());
+        // Có job alert active và có criteria thì lọc theo criteria ngay trong database,
+        // ngược lại hiển thị tất cả jobs active
+        if (activeAlert != null && this.jobAlertService.hasAnyCriteria(activeAlert)) {
+            spec = spec.and(this.jobAlertService.buildMatchingSpecification(activeAlert));
         }
 
-        // Manual pagination
-        int total = allMatchingJobs.size();
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), total);
-        List<Job> pagedJobs = start < total ? allMatchingJobs.subList(start, end) : Collections.emptyList();
-
-        // Tối ưu: Chỉ update active status cho jobs trong page (không cần update tất cả)
-        pagedJobs.forEach(this::updateJobActiveStatus);
+        // Chỉ lấy ID của trang hiện tại (kèm count), sau đó load job cùng skills/company/category
+        Page<Long> pageIds = this.jobRepository.findIds(spec, pageable);
+        List<ResJobSummaryDTO> pagedJobs = this.jobRepository.findSummariesInOrder(pageIds.getContent());
 
         ResultPaginationDTO rs = new ResultPaginationDTO();
         ResultPaginationDTO.Meta mt = new ResultPaginationDTO.Meta();
         mt.setPage(pageable.getPageNumber() + 1);
         mt.setPageSize(pageable.getPageSize());
-        mt.setTotal(total);
-        mt.setPages((int) Math.ceil((double) total / pageable.getPageSize()));
+        mt.setTotal(pageIds.getTotalElements());
+        mt.setPages(pageIds.getTotalPages());
 
         rs.setMeta(mt);
         rs.setResult(pagedJobs);
@@ -608,12 +719,17 @@ public class JobService {
         mt.setPage(1);
         mt.setPageSize(pageable.getPageSize());
         mt.setPages(0);
-        mt.setTotal(0);
+        mt.setTotal(0L);
         rs.setMeta(mt);
         rs.setResult(Collections.emptyList());
         return rs;
     }
 
+    private User getCurrentUserOrNull() {
+        String email = SecurityUtil.getCurrentUserLogin().orElse(null);
+        return email != null ? this.userRepository.findByEmail(email) : null;
+    }
+
     /**
      * Check if user is HR or HR_PENDING (case-insensitive)
      */
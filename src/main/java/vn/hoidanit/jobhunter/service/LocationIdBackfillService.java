@@ -0,0 +1,83 @@
+package vn.hoidanit.jobhunter.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import vn.hoidanit.jobhunter.util.LocationMatcher;
+
+/**
+ * Điền cột location_id của jobs và job_alerts cho các dòng chưa có (dữ liệu cũ) khi ứng dụng khởi động.
+ * Dòng có location_id = 0 (không có trong từ điển) cũng được tính lại để nhận alias mới thêm vào LocationMatcher.
+ * Duyệt keyset theo id, mỗi lô một JDBC batch update; dòng mới được điền qua @PrePersist / @PreUpdate.
+ */
+@Slf4j
+@Service
+public class LocationIdBackfillService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LocationIdBackfillService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        backfill("jobs");
+        backfill("job_alerts");
+    }
+
+    private void backfill(String table) {
+        String selectSql = "SELECT id, location, location_id FROM " + table
+                + " WHERE (location_id IS NULL OR location_id = 0) AND id > ? ORDER BY id LIMIT ?";
+        String updateSql = "UPDATE " + table + " SET location_id = ? WHERE id = ?";
+
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        int updated = 0;
+        try {
+            while (true) {
+                List<PendingRow> rows = this.jdbcTemplate.query(selectSql,
+                        (rs, rowNum) -> new PendingRow(rs.getLong(1), rs.getString(2), rs.getObject(3) == null),
+                        lastId, BATCH_SIZE);
+                if (rows.isEmpty()) {
+                    break;
+                }
+
+                List<Object[]> updates = new ArrayList<>(rows.size());
+                for (PendingRow row : rows) {
+                    int locationId = LocationMatcher.locationId(row.location());
+                    // Dòng đã là 0 mà vẫn không có trong từ điển thì không cần ghi lại
+                    if (row.missing() || locationId != LocationMatcher.UNKNOWN_LOCATION_ID) {
+                        updates.add(new Object[] { locationId, row.id() });
+                    }
+                }
+                if (!updates.isEmpty()) {
+                    this.jdbcTemplate.batchUpdate(updateSql, updates);
+                    updated += updates.size();
+                }
+
+                lastId = rows.get(rows.size() - 1).id();
+                if (rows.size() < BATCH_SIZE) {
+                    break;
+                }
+            }
+            if (updated > 0) {
+                log.info("Backfilled location_id for {} rows of {} in {} ms",
+                        updated, table, System.currentTimeMillis() - start);
+            }
+        } catch (Exception e) {
+            log.error("Failed to backfill location_id of {} after id {}: {}", table, lastId, e.getMessage());
+        }
+    }
+
+    private record PendingRow(long id, String location, boolean missing) {
+    }
+}
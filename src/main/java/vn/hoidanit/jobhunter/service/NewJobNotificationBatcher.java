@@ -0,0 +1,102 @@
+package vn.hoidanit.jobhunter.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import vn.hoidanit.jobhunter.config.AsyncConfiguration;
+import vn.hoidanit.jobhunter.domain.Job;
+
+/**
+ * Gom các job mới được tạo trong một khoảng thời gian (hoidanit.job-alert.new-job.window-ms)
+ * rồi xét cả lô với các job alert một lần: khi công ty đăng nhiều job liên tiếp, mỗi người nhận
+ * chỉ nhận một email với các job mới phù hợp nhất thay vì một email cho mỗi job.
+ * Lô được xử lý trên alertExecutor, mỗi lúc một lô; executor đầy thì job quay lại lô chờ.
+ */
+@Slf4j
+@Service
+public class NewJobNotificationBatcher {
+
+    private final JobAlertService jobAlertService;
+    private final AsyncTaskExecutor alertExecutor;
+
+    private final Set<Long> pendingJobIds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean processing = new AtomicBoolean(false);
+
+    public NewJobNotificationBatcher(
+            JobAlertService jobAlertService,
+            @Qualifier(AsyncConfiguration.ALERT_EXECUTOR) AsyncTaskExecutor alertExecutor) {
+        this.jobAlertService = jobAlertService;
+        this.alertExecutor = alertExecutor;
+    }
+
+    /**
+     * Đưa job mới vào lô chờ thông báo (không block request)
+     */
+    public void submit(Job job) {
+        if (job != null && job.isActive()) {
+            this.pendingJobIds.add(job.getId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${hoidanit.job-alert.new-job.window-ms:30000}")
+    public void flush() {
+        // Lô trước chưa xong thì job mới tiếp tục được gom cho lượt sau
+        if (this.pendingJobIds.isEmpty() || !this.processing.compareAndSet(false, true)) {
+            return;
+        }
+        List<Long> batch = drainPending();
+        try {
+            this.alertExecutor.execute(() -> {
+                try {
+                    process(batch);
+                } finally {
+                    this.processing.set(false);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.warn("Alert executor is saturated, {} new jobs kept for the next window", batch.size());
+            this.pendingJobIds.addAll(batch);
+            this.processing.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (!this.pendingJobIds.isEmpty()) {
+            process(drainPending());
+        }
+    }
+
+    private List<Long> drainPending() {
+        List<Long> batch = new ArrayList<>();
+        Iterator<Long> iterator = this.pendingJobIds.iterator();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+        return batch;
+    }
+
+    private void process(List<Long> batch) {
+        long start = System.currentTimeMillis();
+        try {
+            int emails = this.jobAlertService.sendNotificationForNewJobs(batch);
+            log.info("New job notifications: {} jobs, {} emails queued in {} ms",
+                    batch.size(), emails, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Failed to send notifications for {} new jobs: {}", batch.size(), e.getMessage());
+        }
+    }
+}
@@ -129,7 +129,7 @@ public class ResumeService {
     }
 
     public ResultPaginationDTO fetchAllResume(Specification<Resume> spec, Pageable pageable) {
-        Page<Resume> pageUser = this.resumeRepository.findAll(spec, pageable);
+        Page<Resume> pageUser = this.resumeRepository.findPageWithRelations(spec, pageable);
         ResultPaginationDTO rs = new ResultPaginationDTO();
         ResultPaginationDTO.Meta mt = new ResultPaginationDTO.Meta();
 
@@ -177,7 +177,7 @@ public class ResumeService {
                 : "";
         FilterNode node = filterParser.parse("email='" + email + "'");
         FilterSpecification<Resume> spec = filterSpecificationConverter.convert(node);
-        Page<Resume> pageResume = this.resumeRepository.findAll(spec, pageable);
+        Page<Resume> pageResume = this.resumeRepository.findPageWithRelations(spec, pageable);
 
         ResultPaginationDTO rs = new ResultPaginationDTO();
         ResultPaginationDTO.Meta mt = new ResultPaginationDTO.Meta();
@@ -46,6 +46,8 @@ public class UserService {
     private final FeedbackRepository feedbackRepository;
     private final UserCvRepository userCvRepository;
     private final ResumeRepository resumeRepository;
+    private final JobMatchingCache jobMatchingCache;
+    private final JobAlertIndex jobAlertIndex;
 
     public UserService(UserRepository userRepository,
             CompanyService companyService,
@@ -55,7 +57,9 @@ public class UserService {
             FavoriteRepository favoriteRepository,
             FeedbackRepository feedbackRepository,
             UserCvRepository userCvRepository,
-            ResumeRepository resumeRepository) {
+            ResumeRepository resumeRepository,
+            JobMatchingCache jobMatchingCache,
+            JobAlertIndex jobAlertIndex) {
         this.userRepository = userRepository;
         this.companyService = companyService;
         this.roleService = roleService;
@@ -65,6 +69,8 @@ public class UserService {
         this.feedbackRepository = feedbackRepository;
         this.userCvRepository = userCvRepository;
         this.resumeRepository = resumeRepository;
+        this.jobMatchingCache = jobMatchingCache;
+        this.jobAlertIndex = jobAlertIndex;
     }
 
     public User handleCreateUser(User user) {
@@ -121,6 +127,7 @@ public class UserService {
 
         // Cuối cùng mới xóa user
         this.userRepository.deleteById(id);
+        this.jobMatchingCache.evictUser(user.getEmail());
     }
 
     /**
@@ -132,6 +139,7 @@ public class UserService {
             jobAlerts.forEach(alert -> alert.getSkills().clear());
             this.jobAlertRepository.saveAll(jobAlerts);
             this.jobAlertRepository.deleteAll(jobAlerts);
+            jobAlerts.forEach(alert -> this.jobAlertIndex.remove(alert.getId()));
         }
     }
 
@@ -216,6 +224,7 @@ public class UserService {
 
             // update
             currentUser = this.userRepository.save(currentUser);
+            this.jobMatchingCache.evictUser(currentUser.getEmail());
         }
         return currentUser;
     }
@@ -0,0 +1,140 @@
+package vn.hoidanit.jobhunter.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Set;
+
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import vn.hoidanit.jobhunter.util.error.IdInvalidException;
+
+/**
+ * Cursor cho keyset pagination: mã hóa (giá trị sort key, id) của bản ghi cuối trang.
+ * Trang tiếp theo lấy các bản ghi đứng sau cặp này theo thứ tự (sort key, id),
+ * nên không cần OFFSET và không cần query COUNT.
+ */
+public record KeysetCursor(String property, Sort.Direction direction, String value, long id) {
+
+    private static final String ID = "id";
+    private static final String SEPARATOR = ":";
+    private static final String NULL_VALUE = "~";
+
+    // Sort key phải là cột đơn của job (root.get không đi được "company.name")
+    private static final Set<String> SORT_KEYS = Set.of(
+            ID, "name", "salary", "quantity", "createdAt", "updatedAt", "startDate", "endDate");
+
+    /**
+     * Thứ tự dùng cho cursor: order đầu tiên của request, mặc định createdAt DESC.
+     * Sort key ngoài SORT_KEYS bị từ chối (400) thay vì lỗi khi dựng query.
+     */
+    public static Sort.Order orderOf(Sort sort) throws IdInvalidException {
+        Sort.Order first = sort.stream().findFirst().orElse(null);
+        if (first == null) {
+            return Sort.Order.desc("createdAt");
+        }
+        if (!SORT_KEYS.contains(first.getProperty())) {
+            throw new IdInvalidException("Không hỗ trợ phân trang bằng cursor khi sort theo " + first.getProperty());
+        }
+        return first;
+    }
+
+    /**
+     * Sort đầy đủ (sort key rồi tới id cùng chiều) để thứ tự là duy nhất
+     */
+    public static Sort sortOf(Sort.Order order) {
+        if (ID.equals(order.getProperty())) {
+            return Sort.by(order);
+        }
+        return Sort.by(order, new Sort.Order(order.getDirection(), ID));
+    }
+
+    /**
+     * Tạo cursor trỏ tới bản ghi cuối cùng của trang hiện tại
+     */
+    public static KeysetCursor of(Sort.Order order, Object entity) {
+        BeanWrapperImpl wrapper = new BeanWrapperImpl(entity);
+        Object value = wrapper.getPropertyValue(order.getProperty());
+        long id = ((Number) wrapper.getPropertyValue(ID)).longValue();
+        return new KeysetCursor(order.getProperty(), order.getDirection(),
+                value != null ? value.toString() : null, id);
+    }
+
+    /**
+     * Giải mã cursor, cursor phải được tạo với cùng sort key và chiều sort
+     */
+    public static KeysetCursor decode(String token, Sort.Order order) throws IdInvalidException {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 4);
+            if (parts.length != 4
+                    || !parts[0].equals(order.getProperty())
+                    || Sort.Direction.fromString(parts[1]) != order.getDirection()) {
+                throw new IdInvalidException("Cursor không hợp lệ hoặc không khớp với tham số sort");
+            }
+            String value = NULL_VALUE.equals(parts[3]) ? null : parts[3];
+            return new KeysetCursor(parts[0], order.getDirection(), value, Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new IdInvalidException("Cursor không hợp lệ");
+        }
+    }
+
+    public String encode() {
+        String raw = property + SEPARATOR + direction.name() + SEPARATOR + id + SEPARATOR
+                + (value != null ? value : NULL_VALUE);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Chuyển giá trị đã mã hóa về đúng kiểu Java của sort key
+     */
+    public Object typedValue(Class<?> type) {
+        if (value == null) {
+            return null;
+        }
+        if (type == Instant.class) {
+            return Instant.parse(value);
+        }
+        if (type == Double.class || type == double.class) {
+            return Double.valueOf(value);
+        }
+        if (type == Integer.class || type == int.class) {
+            return Integer.valueOf(value);
+        }
+        if (type == Long.class || type == long.class) {
+            return Long.valueOf(value);
+        }
+        return value;
+    }
+
+    /**
+     * Điều kiện "đứng sau cursor" theo thứ tự (sort key, id).
+     * NULL đứng đầu khi ASC và cuối khi DESC, giống MySQL.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public <T> Specification<T> toSpecification() {
+        return (root, query, cb) -> {
+            boolean asc = direction.isAscending();
+            Path<Long> idPath = root.get(ID);
+            Predicate idAfter = asc ? cb.greaterThan(idPath, id) : cb.lessThan(idPath, id);
+            if (ID.equals(property)) {
+                return idAfter;
+            }
+
+            Path path = root.get(property);
+            Comparable cursorValue = (Comparable) typedValue(path.getJavaType());
+            if (cursorValue == null) {
+                Predicate sameNullGroup = cb.and(cb.isNull(path), idAfter);
+                return asc ? cb.or(sameNullGroup, cb.isNotNull(path)) : sameNullGroup;
+            }
+
+            Predicate after = asc ? cb.greaterThan(path, cursorValue) : cb.lessThan(path, cursorValue);
+            Predicate sameValue = cb.and(cb.equal(path, cursorValue), idAfter);
+            return asc ? cb.or(after, sameValue) : cb.or(after, sameValue, cb.isNull(path));
+        };
+    }
+}
@@ -1,132 +1,178 @@
 package vn.hoidanit.jobhunter.util;
 
-import java.util.*;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class để so sánh và match location (tỉnh/thành phố) một cách thông minh
  * Hỗ trợ matching các biến thể tên gọi như "TP.HCM", "Hồ Chí Minh", "Ho Chi Minh", v.v.
+ *
+ * Từ điển được dựng sẵn một lần: mọi tên gọi (đã chuẩn hóa) trỏ tới ID của tỉnh/thành trong một HashMap.
+ * Chuỗi location gốc được chuẩn hóa và tra ID một lần rồi nhớ lại (cache có giới hạn), nên matches
+ * giữa hai location có trong từ điển chỉ là so sánh hai số int.
  */
 public class LocationMatcher {
 
     /**
-     * Map các tỉnh/thành phố với các tên gọi phổ biến
-     * Key: Tên chính thức
-     * Value: Set các tên gọi khác (aliases)
+     * ID của location không có trong từ điển
      */
-    private static final Map<String, Set<String>> LOCATION_ALIASES = new HashMap<>();
+    public static final int UNKNOWN_LOCATION_ID = 0;
+
+    // Số chuỗi location gốc được nhớ kết quả chuẩn hóa, vượt quá thì xóa cache
+    private static final int MEMO_LIMIT = 4096;
+
+    /**
+     * Tên gọi đã chuẩn hóa -> ID tỉnh/thành. Một tên gọi chỉ thuộc về một tỉnh/thành:
+     * tên chính thức luôn thắng, alias trùng giữa hai tỉnh thuộc về tỉnh khai báo trước.
+     * ID được lưu xuống database, không đổi ID đã có, chỉ thêm ID mới.
+     */
+    private static final Map<String, Integer> LOCATION_IDS = new HashMap<>();
+    private static final Map<Integer, String> CANONICAL_NAMES = new HashMap<>();
+
+    private static final Map<String, ResolvedLocation> MEMO = new ConcurrentHashMap<>();
 
     static {
         // Hà Nội
-        addLocation("Hà Nội", "Ha Noi", "Hanoi", "Thủ đô Hà Nội", "Thu do Ha Noi");
+        addLocation(1, "Hà Nội", "Ha Noi", "Hanoi", "Thủ đô Hà Nội", "Thu do Ha Noi");
 
         // Hồ Chí Minh
-        addLocation("Hồ Chí Minh", "Ho Chi Minh", "TP.HCM", "TP HCM", "Sài Gòn", "Sai Gon", 
+        addLocation(2, "Hồ Chí Minh", "Ho Chi Minh", "TP.HCM", "TP HCM", "Sài Gòn", "Sai Gon", 
                    "Thành phố Hồ Chí Minh", "Thanh pho Ho Chi Minh", "HCM", "TP.HCM", "TPHCM");
 
         // Hải Phòng
-        addLocation("Hải Phòng", "Hai Phong", "HP");
+        addLocation(3, "Hải Phòng", "Hai Phong", "HP");
 
         // Đà Nẵng
-        addLocation("Đà Nẵng", "Da Nang", "DN");
+        addLocation(4, "Đà Nẵng", "Da Nang", "DN");
 
         // Cần Thơ
-        addLocation("Cần Thơ", "Can Tho", "CT");
+        addLocation(5, "Cần Thơ", "Can Tho", "CT");
 
         // Bà Rịa - Vũng Tàu
-        addLocation("Bà Rịa - Vũng Tàu", "Ba Ria - Vung Tau", "Vũng Tàu", "Vung Tau", 
+        addLocation(6, "Bà Rịa - Vũng Tàu", "Ba Ria - Vung Tau", "Vũng Tàu", "Vung Tau", 
                    "BR-VT", "BRVT", "Bà Rịa Vũng Tàu", "Ba Ria Vung Tau");
 
         // Bình Dương
-        addLocation("Bình Dương", "Binh Duong", "BD");
+        addLocation(7, "Bình Dương", "Binh Duong", "BD");
 
         // Đồng Nai
-        addLocation("Đồng Nai", "Dong Nai", "DN2");
+        addLocation(8, "Đồng Nai", "Dong Nai", "DN2");
 
         // Khánh Hòa
-        addLocation("Khánh Hòa", "Khanh Hoa", "Nha Trang", "KH");
+        addLocation(9, "Khánh Hòa", "Khanh Hoa", "Nha Trang", "KH");
 
         // Lâm Đồng
-        addLocation("Lâm Đồng", "Lam Dong", "Đà Lạt", "Da Lat", "LD");
+        addLocation(10, "Lâm Đồng", "Lam Dong", "Đà Lạt", "Da Lat", "LD");
 
         // Quảng Ninh
-        addLocation("Quảng Ninh", "Quang Ninh", "Hạ Long", "Ha Long", "QN");
+        addLocation(11, "Quảng Ninh", "Quang Ninh", "Hạ Long", "Ha Long", "QN");
 
         // Thừa Thiên Huế
-        addLocation("Thừa Thiên Huế", "Thua Thien Hue", "Huế", "Hue", "HUE");
+        addLocation(12, "Thừa Thiên Huế", "Thua Thien Hue", "Huế", "Hue", "HUE");
 
         // Nghệ An
-        addLocation("Nghệ An", "Nghe An", "Vinh", "NA");
+        addLocation(13, "Nghệ An", "Nghe An", "Vinh", "NA");
 
         // Các tỉnh khác (có thể bổ sung thêm)
-        addLocation("An Giang", "AG");
-        addLocation("Bạc Liêu", "Bac Lieu", "BL");
-        addLocation("Bắc Kạn", "Bac Kan", "BK");
-        addLocation("Bắc Giang", "Bac Giang", "BG");
-        addLocation("Bắc Ninh", "Bac Ninh", "BN");
-        addLocation("Bến Tre", "Ben Tre", "BT");
-        addLocation("Bình Định", "Binh Dinh", "BD2");
-        addLocation("Bình Phước", "Binh Phuoc", "BP");
-        addLocation("Bình Thuận", "Binh Thuan", "BT2");
-        addLocation("Cà Mau", "Ca Mau", "CM");
-        addLocation("Cao Bằng", "Cao Bang", "CB");
-        addLocation("Đắk Lắk", "Dak Lak", "Đắc Lắc", "DL");
-        addLocation("Đắk Nông", "Dak Nong", "Đắc Nông", "DG");
-        addLocation("Điện Biên", "Dien Bien", "DB");
-        addLocation("Đồng Tháp", "Dong Thap", "DT");
-        addLocation("Gia Lai", "GL");
-        addLocation("Hà Giang", "Ha Giang", "HG");
-        addLocation("Hà Nam", "Ha Nam", "HN2");
-        addLocation("Hà Tĩnh", "Ha Tinh", "HT");
-        addLocation("Hải Dương", "Hai Duong", "HD");
-        addLocation("Hòa Bình", "Hoa Binh", "HB");
-        addLocation("Hưng Yên", "Hung Yen", "HY");
-        addLocation("Kiên Giang", "Kien Giang", "KG");
-        addLocation("Lào Cai", "Lao Cai", "LC");
-        addLocation("Lạng Sơn", "Lang Son", "LS");
-        addLocation("Long An", "LA");
-        addLocation("Nam Định", "Nam Dinh", "ND");
-        addLocation("Ninh Bình", "Ninh Binh", "NB");
-        addLocation("Ninh Thuận", "Ninh Thuan", "NT");
-        addLocation("Phú Thọ", "Phu Tho", "PT");
-        addLocation("Phú Yên", "Phu Yen", "PY");
-        addLocation("Quảng Bình", "Quang Binh", "QB");
-        addLocation("Quảng Nam", "Quang Nam", "QN");
-        addLocation("Quảng Ngãi", "Quang Ngai", "QG");
-        addLocation("Quảng Trị", "Quang Tri", "QT");
-        addLocation("Sóc Trăng", "Soc Trang", "ST");
-        addLocation("Sơn La", "Son La", "SL");
-        addLocation("Tây Ninh", "Tay Ninh", "TN");
-        addLocation("Thái Bình", "Thai Binh", "TB");
-        addLocation("Thái Nguyên", "Thai Nguyen", "TY");
-        addLocation("Thanh Hóa", "Thanh Hoa", "TH");
-        addLocation("Tiền Giang", "Tien Giang", "TG");
-        addLocation("Trà Vinh", "Tra Vinh", "TV");
-        addLocation("Tuyên Quang", "Tuyen Quang", "TQ");
-        addLocation("Vĩnh Long", "Vinh Long", "VL");
-        addLocation("Vĩnh Phúc", "Vinh Phuc", "VP");
-        addLocation("Yên Bái", "Yen Bai", "YB");
+        addLocation(14, "An Giang", "AG");
+        addLocation(15, "Bạc Liêu", "Bac Lieu", "BL");
+        addLocation(16, "Bắc Kạn", "Bac Kan", "BK");
+        addLocation(17, "Bắc Giang", "Bac Giang", "BG");
+        addLocation(18, "Bắc Ninh", "Bac Ninh", "BN");
+        addLocation(19, "Bến Tre", "Ben Tre", "BT");
+        addLocation(20, "Bình Định", "Binh Dinh", "BD2");
+        addLocation(21, "Bình Phước", "Binh Phuoc", "BP");
+        addLocation(22, "Bình Thuận", "Binh Thuan", "BT2");
+        addLocation(23, "Cà Mau", "Ca Mau", "CM");
+        addLocation(24, "Cao Bằng", "Cao Bang", "CB");
+        addLocation(25, "Đắk Lắk", "Dak Lak", "Đắc Lắc", "DL");
+        addLocation(26, "Đắk Nông", "Dak Nong", "Đắc Nông", "DG");
+        addLocation(27, "Điện Biên", "Dien Bien", "DB");
+        addLocation(28, "Đồng Tháp", "Dong Thap", "DT");
+        addLocation(29, "Gia Lai", "GL");
+        addLocation(30, "Hà Giang", "Ha Giang", "HG");
+        addLocation(31, "Hà Nam", "Ha Nam", "HN2");
+        addLocation(32, "Hà Tĩnh", "Ha Tinh", "HT");
+        addLocation(33, "Hải Dương", "Hai Duong", "HD");
+        addLocation(34, "Hòa Bình", "Hoa Binh", "HB");
+        addLocation(35, "Hưng Yên", "Hung Yen", "HY");
+        addLocation(36, "Kiên Giang", "Kien Giang", "KG");
+        addLocation(37, "Lào Cai", "Lao Cai", "LC");
+        addLocation(38, "Lạng Sơn", "Lang Son", "LS");
+        addLocation(39, "Long An", "LA");
+        addLocation(40, "Nam Định", "Nam Dinh", "ND");
+        addLocation(41, "Ninh Bình", "Ninh Binh", "NB");
+        addLocation(42, "Ninh Thuận", "Ninh Thuan", "NT");
+        addLocation(43, "Phú Thọ", "Phu Tho", "PT");
+        addLocation(44, "Phú Yên", "Phu Yen", "PY");
+        addLocation(45, "Quảng Bình", "Quang Binh", "QB");
+        addLocation(46, "Quảng Nam", "Quang Nam", "QN");
+        addLocation(47, "Quảng Ngãi", "Quang Ngai", "QG");
+        addLocation(48, "Quảng Trị", "Quang Tri", "QT");
+        addLocation(49, "Sóc Trăng", "Soc Trang", "ST");
+        addLocation(50, "Sơn La", "Son La", "SL");
+        addLocation(51, "Tây Ninh", "Tay Ninh", "TN");
+        addLocation(52, "Thái Bình", "Thai Binh", "TB");
+        addLocation(53, "Thái Nguyên", "Thai Nguyen", "TY");
+        addLocation(54, "Thanh Hóa", "Thanh Hoa", "TH");
+        addLocation(55, "Tiền Giang", "Tien Giang", "TG");
+        addLocation(56, "Trà Vinh", "Tra Vinh", "TV");
+        addLocation(57, "Tuyên Quang", "Tuyen Quang", "TQ");
+        addLocation(58, "Vĩnh Long", "Vinh Long", "VL");
+        addLocation(59, "Vĩnh Phúc", "Vinh Phuc", "VP");
+        addLocation(60, "Yên Bái", "Yen Bai", "YB");
     }
 
-    private static void addLocation(String mainName, String... aliases) {
-        Set<String> aliasSet = new HashSet<>();
-        aliasSet.add(normalize(mainName));
+    private static void addLocation(int id, String mainName, String... aliases) {
+        CANONICAL_NAMES.put(id, mainName);
+        LOCATION_IDS.put(normalize(mainName), id);
         for (String alias : aliases) {
-            aliasSet.add(normalize(alias));
+            LOCATION_IDS.putIfAbsent(normalize(alias), id);
         }
-        LOCATION_ALIASES.put(normalize(mainName), aliasSet);
     }
 
     /**
-     * Normalize location string: loại bỏ dấu, chuyển về lowercase, trim
+     * Normalize location string: bỏ dấu (TextNormalizer.fold), lowercase, bỏ ký tự đặc biệt, gộp khoảng trắng
+     * VD: "TP.HCM" -> "tphcm", "Bà Rịa - Vũng Tàu" -> "ba ria vung tau"
      */
     private static String normalize(String location) {
-        if (location == null) {
-            return "";
+        String folded = TextNormalizer.fold(location);
+        StringBuilder result = new StringBuilder(folded.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                if (pendingSpace && result.length() > 0) {
+                    result.append(' ');
+                }
+                pendingSpace = false;
+                result.append(c);
+            } else if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Chuẩn hóa và tra ID của location gốc, có nhớ kết quả
+     */
+    private static ResolvedLocation resolve(String location) {
+        ResolvedLocation cached = MEMO.get(location);
+        if (cached != null) {
+            return cached;
+        }
+        String normalized = normalize(location);
+        ResolvedLocation resolved = new ResolvedLocation(
+                LOCATION_IDS.getOrDefault(normalized, UNKNOWN_LOCATION_ID), normalized);
+        if (MEMO.size() >= MEMO_LIMIT) {
+            MEMO.clear();
         }
-        return location.trim()
-                .toLowerCase()
-                .replaceAll("\\s+", " ") // Nhiều khoảng trắng thành 1
-                .replaceAll("[^a-z0-9\\s]", ""); // Loại bỏ ký tự đặc biệt
+        MEMO.put(location, resolved);
+        return resolved;
     }
 
     /**
@@ -138,34 +184,23 @@ public class LocationMatcher {
             return false;
         }
 
-        String norm1 = normalize(location1);
-        String norm2 = normalize(location2);
+        ResolvedLocation resolved1 = resolve(location1);
+        ResolvedLocation resolved2 = resolve(location2);
 
-        // Exact match sau khi normalize
-        if (norm1.equals(norm2)) {
-            return true;
+        // Có trong từ điển: cùng tỉnh/thành khi cùng ID
+        if (resolved1.id() != UNKNOWN_LOCATION_ID || resolved2.id() != UNKNOWN_LOCATION_ID) {
+            return resolved1.id() == resolved2.id();
         }
 
-        // Kiểm tra trong alias map
-        Set<String> aliases1 = findAliases(norm1);
-        Set<String> aliases2 = findAliases(norm2);
+        String norm1 = resolved1.normalized();
+        String norm2 = resolved2.normalized();
 
-        // Nếu cả hai đều có trong map, so sánh sets
-        if (!aliases1.isEmpty() && !aliases2.isEmpty()) {
-            // Có overlap nghĩa là cùng một tỉnh
-            return !Collections.disjoint(aliases1, aliases2);
-        }
-
-        // Nếu một trong hai có trong map, kiểm tra xem cái kia có trong aliases không
-        if (!aliases1.isEmpty()) {
-            return aliases1.contains(norm2);
-        }
-        if (!aliases2.isEmpty()) {
-            return aliases2.contains(norm1);
+        // Exact match sau khi normalize
+        if (norm1.equals(norm2)) {
+            return true;
         }
 
         // Fuzzy matching: kiểm tra xem một location có chứa location kia không
-        // VD: "TP.HCM" chứa "HCM", "Hồ Chí Minh" chứa "HCM"
         if (norm1.contains(norm2) || norm2.contains(norm1)) {
             // Chỉ match nếu độ dài chênh lệch không quá lớn (tránh false positive)
             int lengthDiff = Math.abs(norm1.length() - norm2.length());
@@ -178,15 +213,26 @@ public class LocationMatcher {
     }
 
     /**
-     * Tìm tất cả aliases của một location
+     * ID tỉnh/thành của location, UNKNOWN_LOCATION_ID nếu không có trong từ điển
      */
-    private static Set<String> findAliases(String normalizedLocation) {
-        for (Map.Entry<String, Set<String>> entry : LOCATION_ALIASES.entrySet()) {
-            if (entry.getValue().contains(normalizedLocation)) {
-                return entry.getValue();
-            }
-        }
-        return Collections.emptySet();
+    public static int locationId(String location) {
+        return location != null ? resolve(location).id() : UNKNOWN_LOCATION_ID;
+    }
+
+    /**
+     * Location có nằm trong từ điển alias hay không
+     */
+    public static boolean isKnownLocation(String location) {
+        return locationId(location) != UNKNOWN_LOCATION_ID;
+    }
+
+    /**
+     * Tên chính thức của mọi tỉnh/thành mà một location trong từ điển có thể match với location này
+     * (theo cùng quy tắc so khớp của matches: tối đa một tỉnh/thành)
+     */
+    public static Set<String> matchingCanonicalNames(String location) {
+        int id = locationId(location);
+        return id != UNKNOWN_LOCATION_ID ? Set.of(CANONICAL_NAMES.get(id)) : Collections.emptySet();
     }
 
     /**
@@ -196,17 +242,18 @@ public class LocationMatcher {
         if (location == null) {
             return null;
         }
+        int id = locationId(location);
+        // Không tìm thấy trong map, trả về location gốc (đã trim)
+        return id != UNKNOWN_LOCATION_ID ? CANONICAL_NAMES.get(id) : location.trim();
+    }
 
-        String normalized = normalize(location);
-        for (Map.Entry<String, Set<String>> entry : LOCATION_ALIASES.entrySet()) {
-            if (entry.getValue().contains(normalized)) {
-                // Tìm tên chính thức (key) - lấy key có dấu đầy đủ nhất
-                return entry.getKey();
-            }
-        }
+    /**
+     * Tên chính thức theo ID, null nếu ID không có trong từ điển
+     */
+    public static String getCanonicalName(int locationId) {
+        return CANONICAL_NAMES.get(locationId);
+    }
 
-        // Không tìm thấy trong map, trả về location gốc (đã trim)
-        return location.trim();
+    private record ResolvedLocation(int id, String normalized) {
     }
 }
-
@@ -0,0 +1,5 @@
+package vn.hoidanit.jobhunter.util.constant;
+
+public enum CircuitStateEnum {
+    CLOSED, OPEN, HALF_OPEN
+}
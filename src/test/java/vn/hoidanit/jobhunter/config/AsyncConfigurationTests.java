@@ -0,0 +1,57 @@
+package vn.hoidanit.jobhunter.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+class AsyncConfigurationTests {
+
+	@Test
+	void boundedExecutorRejectsInsteadOfBlockingWhenFull() throws Exception {
+		AsyncConfiguration.BoundedAsyncTaskExecutor executor = new AsyncConfiguration.BoundedAsyncTaskExecutor("test-", 1);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Future<?> running = executor.submit(() -> {
+			started.countDown();
+			release.await();
+			return null;
+		});
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		// Đủ giới hạn: luồng gửi nhận TaskRejectedException ngay, không bị chặn
+		assertThatThrownBy(() -> executor.execute(() -> {
+		})).isInstanceOf(TaskRejectedException.class);
+		assertThatThrownBy(() -> executor.submit(() -> {
+		})).isInstanceOf(TaskRejectedException.class);
+
+		release.countDown();
+		running.get(5, TimeUnit.SECONDS);
+
+		// Task xong thì trả chỗ cho task sau
+		Future<String> next = submitWhenFree(executor);
+		assertThat(next.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+	}
+
+	// Permit được trả trong finally của thread vừa chạy xong, có thể trễ hơn Future.get một chút
+	private static Future<String> submitWhenFree(AsyncConfiguration.BoundedAsyncTaskExecutor executor)
+			throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (true) {
+			try {
+				return executor.submit(() -> "done");
+			} catch (TaskRejectedException e) {
+				if (System.nanoTime() > deadline) {
+					throw e;
+				}
+				Thread.sleep(10);
+			}
+		}
+	}
+}
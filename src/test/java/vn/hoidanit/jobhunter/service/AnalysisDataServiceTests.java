@@ -0,0 +1,264 @@
+package vn.hoidanit.jobhunter.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import vn.hoidanit.jobhunter.util.constant.CircuitStateEnum;
+
+/**
+ * Chạy với AI server giả (HttpServer của JDK). Không dựa vào thời gian chạy: job "treo" chờ latch
+ * cho tới khi test kết thúc, các điều kiện bất đồng bộ được chờ bằng awaitUntil.
+ */
+class AnalysisDataServiceTests {
+
+	private static final long HANGING_JOB_ID = 99L;
+	private static final long FAILING_JOB_ID = 500L;
+
+	private HttpServer server;
+	private ExecutorService serverExecutor;
+	private ExecutorService aiExecutor;
+	private final AtomicInteger requests = new AtomicInteger();
+
+	// Job trong hangingJobs chỉ được trả lời khi releaseHanging mở (cuối test)
+	private final Set<Long> hangingJobs = ConcurrentHashMap.newKeySet();
+	private final CountDownLatch releaseHanging = new CountDownLatch(1);
+
+	// Khác null: mỗi request chờ cho tới khi đủ số request đồng thời của latch
+	private volatile CountDownLatch concurrentArrivals;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	@BeforeEach
+	void startStubServer() throws IOException {
+		hangingJobs.add(HANGING_JOB_ID);
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/api/v1/analysis_datas/users", this::handleScoresByJob);
+		server.createContext("/api/v1/analysis_datas", exchange -> {
+			requests.incrementAndGet();
+			exchange.sendResponseHeaders(500, -1);
+			exchange.close();
+		});
+		serverExecutor = Executors.newCachedThreadPool();
+		server.setExecutor(serverExecutor);
+		server.start();
+		aiExecutor = Executors.newFixedThreadPool(8);
+	}
+
+	@AfterEach
+	void stopStubServer() {
+		releaseHanging.countDown();
+		server.stop(0);
+		serverExecutor.shutdownNow();
+		aiExecutor.shutdownNow();
+	}
+
+	@Test
+	void fetchesJobsConcurrently() {
+		concurrentArrivals = new CountDownLatch(4);
+		AnalysisDataService service = newService(30_000, 30_000);
+
+		Map<Long, Map<Long, Integer>> result = service.getMatchingScoresByJobs(List.of(1L, 2L, 3L, 4L));
+
+		// Stub chỉ trả lời khi cả 4 request cùng đang chờ: gọi tuần tự thì không có kết quả nào
+		assertThat(result).containsOnlyKeys(1L, 2L, 3L, 4L);
+		assertThat(result.get(3L)).containsEntry(7L, 53);
+		assertThat(maxInFlight).hasValue(4);
+	}
+
+	@Test
+	void returnsPartialResultsAndCancelsStragglersAtTheBatchDeadline() {
+		AiServerCircuitBreaker circuitBreaker = newCircuitBreaker();
+		AnalysisDataService service = newService(circuitBreaker, 30_000, 200);
+
+		Map<Long, Map<Long, Integer>> result = service.getMatchingScoresByJobs(List.of(1L, HANGING_JOB_ID, 2L));
+
+		assertThat(result).containsOnlyKeys(1L, 2L);
+		// Lời gọi bị hủy trả lại slot bulkhead và không bị tính là lỗi của AI server
+		awaitUntil(() -> inFlightCalls(circuitBreaker) == 0, "cancelled call to release its bulkhead slot");
+		assertThat(circuitBreaker.health().getDetails()).containsEntry("failedCalls", 0);
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitStateEnum.CLOSED);
+	}
+
+	@Test
+	void readTimeoutDropsOnlyTheHangingJob() {
+		AiServerCircuitBreaker circuitBreaker = newCircuitBreaker();
+		AnalysisDataService service = newService(circuitBreaker, 300, 30_000);
+
+		Map<Long, Map<Long, Integer>> result = service.getMatchingScoresByJobs(List.of(1L, HANGING_JOB_ID));
+
+		assertThat(result).containsOnlyKeys(1L);
+		assertThat(circuitBreaker.health().getDetails()).containsEntry("failedCalls", 1);
+	}
+
+	@Test
+	void servesCachedScoresUntilInvalidated() {
+		AnalysisDataService service = newService(5000, 5000);
+
+		service.getMatchingScoresByJobs(List.of(1L, 2L));
+		Map<Long, Map<Long, Integer>> cached = service.getMatchingScoresByJobs(List.of(1L, 2L));
+		assertThat(cached).containsOnlyKeys(1L, 2L);
+		assertThat(requests).hasValue(2);
+
+		service.evictJob(1L);
+		service.getMatchingScoresByJobs(List.of(1L, 2L));
+		assertThat(requests).hasValue(3);
+
+		// User 7 có score ở cả hai job nên cả hai bị bỏ khỏi cache
+		service.evictUser(7L);
+		service.getMatchingScoresByJobs(List.of(1L, 2L));
+		assertThat(requests).hasValue(5);
+	}
+
+	@Test
+	void servesStaleScoresWhileRefreshingInTheBackground() {
+		AnalysisDataService service = newService(newCircuitBreaker(), 30_000, 30_000, 0, 60_000);
+
+		assertThat(service.getMatchingScoresByJobs(List.of(1L))).containsOnlyKeys(1L);
+		assertThat(requests).hasValue(1);
+
+		// Refresh của job 1 sẽ treo tới cuối test: nếu lượt đọc chờ refresh thì không trả về được bản cũ
+		hangingJobs.add(1L);
+		Map<Long, Map<Long, Integer>> stale = service.getMatchingScoresByJobs(List.of(1L));
+
+		assertThat(stale).containsOnlyKeys(1L);
+		assertThat(stale.get(1L)).containsEntry(7L, 51);
+		awaitUntil(() -> requests.get() == 2, "background refresh to reach the AI server");
+	}
+
+	@Test
+	void openCircuitSkipsTheAiServer() {
+		AiServerCircuitBreaker circuitBreaker = newCircuitBreaker();
+		AnalysisDataService service = newService(circuitBreaker, 5000, 5000);
+
+		for (int i = 0; i < 4; i++) {
+			assertThat(service.getMatchingScore(7L, FAILING_JOB_ID)).isNull();
+		}
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitStateEnum.OPEN);
+		int before = requests.get();
+
+		assertThat(service.getMatchingScoresByJobs(List.of(1L, 2L))).isEmpty();
+		assertThat(requests).hasValue(before);
+	}
+
+	@Test
+	void halfOpenCircuitAdmitsOneProbeAndClosesOnSuccess() {
+		// open-duration 0: circuit chuyển sang HALF_OPEN ngay sau khi mở
+		AiServerCircuitBreaker circuitBreaker = new AiServerCircuitBreaker(new SimpleMeterRegistry(), 4, 4, 50, 0, 1, 8,
+				1000);
+		AnalysisDataService service = newService(circuitBreaker, 5000, 5000);
+
+		for (int i = 0; i < 4; i++) {
+			assertThat(service.getMatchingScore(7L, FAILING_JOB_ID)).isNull();
+		}
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitStateEnum.HALF_OPEN);
+		int before = requests.get();
+
+		// Giữ slot probe duy nhất: lời gọi khác bị từ chối mà không tới AI server
+		assertThat(circuitBreaker.tryAcquire()).isTrue();
+		assertThat(service.getMatchingScoresByJobs(List.of(1L))).isEmpty();
+		assertThat(requests).hasValue(before);
+
+		circuitBreaker.release(true);
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitStateEnum.CLOSED);
+		assertThat(service.getMatchingScoresByJobs(List.of(1L))).containsOnlyKeys(1L);
+		assertThat(requests).hasValue(before + 1);
+	}
+
+	private AnalysisDataService newService(long readTimeoutMillis, long batchDeadlineMillis) {
+		return newService(newCircuitBreaker(), readTimeoutMillis, batchDeadlineMillis);
+	}
+
+	private AnalysisDataService newService(AiServerCircuitBreaker circuitBreaker, long readTimeoutMillis,
+			long batchDeadlineMillis) {
+		return newService(circuitBreaker, readTimeoutMillis, batchDeadlineMillis, 60_000, 60_000);
+	}
+
+	private AnalysisDataService newService(AiServerCircuitBreaker circuitBreaker, long readTimeoutMillis,
+			long batchDeadlineMillis, long cacheTtlMillis, long cacheStaleMillis) {
+		String url = "http://127.0.0.1:" + server.getAddress().getPort();
+		return new AnalysisDataService(new TaskExecutorAdapter(aiExecutor), new SimpleMeterRegistry(), circuitBreaker, url, 1000,
+				readTimeoutMillis, batchDeadlineMillis, 100, cacheTtlMillis, cacheStaleMillis);
+	}
+
+	private AiServerCircuitBreaker newCircuitBreaker() {
+		return new AiServerCircuitBreaker(new SimpleMeterRegistry(), 4, 4, 50, 60_000, 1, 8, 1000);
+	}
+
+	private static int inFlightCalls(AiServerCircuitBreaker circuitBreaker) {
+		return (Integer) circuitBreaker.health().getDetails().get("inFlightCalls");
+	}
+
+	private static void awaitUntil(BooleanSupplier condition, String description) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() > deadline) {
+				fail("Timed out waiting for " + description);
+			}
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				fail("Interrupted waiting for " + description);
+			}
+		}
+	}
+
+	private void handleScoresByJob(HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		long jobId = Long.parseLong(exchange.getRequestURI().getQuery().replace("jobId=", ""));
+		try {
+			if (hangingJobs.contains(jobId)) {
+				releaseHanging.await();
+			}
+			CountDownLatch arrivals = concurrentArrivals;
+			if (arrivals != null) {
+				maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+				arrivals.countDown();
+				arrivals.await(10, TimeUnit.SECONDS);
+				inFlight.decrementAndGet();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			exchange.close();
+			return;
+		}
+
+		byte[] body = ("{\"success\":true,\"data\":[{\"user_id\":7,\"matching_score\":" + (50 + jobId) + "}]}")
+				.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		try {
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} catch (IOException e) {
+			// Client đã bỏ kết nối (timeout hoặc bị hủy)
+		} finally {
+			exchange.close();
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package vn.hoidanit.jobhunter.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.thymeleaf.exceptions.TemplateInputException;
+
+import vn.hoidanit.jobhunter.domain.EmailOutbox;
+import vn.hoidanit.jobhunter.repository.EmailOutboxRepository;
+
+@SpringJUnitConfig(EmailOutboxServiceTests.Config.class)
+class EmailOutboxServiceTests {
+
+	@Autowired
+	private EmailOutboxService emailOutboxService;
+
+	@Autowired
+	private OutboxTransactionManager transactionManager;
+
+	private TransactionTemplate caller;
+
+	@BeforeEach
+	void setUp() {
+		transactionManager.committed.clear();
+		caller = new TransactionTemplate(transactionManager);
+	}
+
+	@Test
+	void committedCallerKeepsTheOutboxRow() {
+		caller.executeWithoutResult(status -> emailOutboxService.enqueue("hr@company.vn", "Duyệt", "OK", false));
+
+		assertThat(transactionManager.committed).extracting(EmailOutbox::getRecipient).containsExactly("hr@company.vn");
+	}
+
+	@Test
+	void rolledBackCallerLeavesNoOutboxRow() {
+		assertThatThrownBy(() -> caller.executeWithoutResult(status -> {
+			emailOutboxService.enqueue("hr@company.vn", "Duyệt", "OK", false);
+			// Lỗi sau khi đã đưa email vào outbox, ví dụ khi lưu role của HR
+			throw new IllegalStateException("saveAll failed");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(transactionManager.committed).isEmpty();
+	}
+
+	@Test
+	void templateErrorDoesNotRollBackTheCaller() {
+		caller.executeWithoutResult(status -> {
+			emailOutboxService.enqueue("first@company.vn", "Job", "OK", true);
+			try {
+				emailOutboxService.enqueueTemplate("second@company.vn", "Job", "missing", "Bạn", List.of());
+			} catch (TemplateInputException e) {
+				// Nơi gọi bỏ qua email lỗi, các email khác vẫn được commit
+			}
+		});
+
+		assertThat(transactionManager.committed).extracting(EmailOutbox::getRecipient).containsExactly("first@company.vn");
+	}
+
+	@Configuration
+	@EnableTransactionManagement
+	static class Config {
+
+		@Bean
+		OutboxTransactionManager transactionManager() {
+			return new OutboxTransactionManager();
+		}
+
+		@Bean
+		EmailOutboxService emailOutboxService(OutboxTransactionManager transactionManager) {
+			EmailOutboxRepository repository = mock(EmailOutboxRepository.class);
+			when(repository.save(any(EmailOutbox.class))).thenAnswer(invocation -> {
+				EmailOutbox email = invocation.getArgument(0);
+				transactionManager.write(email);
+				return email;
+			});
+			EmailService emailService = mock(EmailService.class);
+			when(emailService.renderTemplate(anyString(), anyString(), any()))
+					.thenThrow(new TemplateInputException("Template không tồn tại"));
+			return new EmailOutboxService(repository, emailService);
+		}
+	}
+
+	/**
+	 * Transaction manager giả: bản ghi outbox chỉ vào "database" (committed) khi transaction vật lý commit
+	 */
+	static class OutboxTransactionManager extends AbstractPlatformTransactionManager {
+
+		final List<EmailOutbox> committed = new ArrayList<>();
+		private final Deque<Resource> open = new ArrayDeque<>();
+
+		void write(EmailOutbox email) {
+			if (open.isEmpty()) {
+				committed.add(email);
+			} else {
+				open.peek().writes.add(email);
+			}
+		}
+
+		@Override
+		protected Object doGetTransaction() {
+			return new Tx(open.peek());
+		}
+
+		@Override
+		protected boolean isExistingTransaction(Object transaction) {
+			return ((Tx) transaction).resource != null;
+		}
+
+		@Override
+		protected void doBegin(Object transaction, TransactionDefinition definition) {
+			Tx tx = (Tx) transaction;
+			tx.resource = new Resource();
+			open.push(tx.resource);
+		}
+
+		@Override
+		protected Object doSuspend(Object transaction) {
+			((Tx) transaction).resource = null;
+			return Boolean.TRUE;
+		}
+
+		@Override
+		protected void doResume(Object transaction, Object suspendedResources) {
+		}
+
+		@Override
+		protected void doCommit(DefaultTransactionStatus status) {
+			committed.addAll(((Tx) status.getTransaction()).resource.writes);
+		}
+
+		@Override
+		protected void doRollback(DefaultTransactionStatus status) {
+		}
+
+		@Override
+		protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+			((Tx) status.getTransaction()).resource.rollbackOnly = true;
+		}
+
+		@Override
+		protected void doCleanupAfterCompletion(Object transaction) {
+			open.pop();
+		}
+	}
+
+	private static class Resource {
+		final List<EmailOutbox> writes = new ArrayList<>();
+		boolean rollbackOnly;
+	}
+
+	private static class Tx implements SmartTransactionObject {
+		Resource resource;
+
+		Tx(Resource resource) {
+			this.resource = resource;
+		}
+
+		@Override
+		public boolean isRollbackOnly() {
+			return resource != null && resource.rollbackOnly;
+		}
+
+		@Override
+		public void flush() {
+		}
+	}
+}
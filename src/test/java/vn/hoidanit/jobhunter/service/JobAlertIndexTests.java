@@ -0,0 +1,127 @@
+package vn.hoidanit.jobhunter.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import vn.hoidanit.jobhunter.domain.Job;
+import vn.hoidanit.jobhunter.domain.JobAlert;
+import vn.hoidanit.jobhunter.domain.Skill;
+import vn.hoidanit.jobhunter.repository.JobAlertRepository;
+
+class JobAlertIndexTests {
+
+	private final Skill java = skill(1L, "Java");
+	private final Skill react = skill(2L, "React");
+
+	// "Database" của test: ActiveJobAlertReader và JobAlertRepository giả đọc từ map này
+	private final Map<Long, JobAlert> database = new LinkedHashMap<>();
+	private JobAlertIndex index;
+
+	// Chạy một lần ngay sau khi rebuild đọc xong các chunk (mô phỏng ghi đồng thời với rebuild)
+	private Runnable afterNextLoad;
+
+	@BeforeEach
+	void setUp() {
+		JobAlertRepository jobAlertRepository = mock(JobAlertRepository.class);
+		when(jobAlertRepository.findByIdWithSkills(anyLong()))
+				.thenAnswer(invocation -> Optional.ofNullable(database.get((Long) invocation.getArgument(0))));
+		ActiveJobAlertReader activeJobAlertReader = mock(ActiveJobAlertReader.class);
+		when(activeJobAlertReader.chunks()).thenAnswer(invocation -> {
+			List<List<JobAlert>> chunks = List.of(new ArrayList<>(database.values()));
+			Runnable hook = afterNextLoad;
+			afterNextLoad = null;
+			if (hook != null) {
+				hook.run();
+			}
+			return chunks;
+		});
+		index = new JobAlertIndex(jobAlertRepository, activeJobAlertReader);
+	}
+
+	@Test
+	void refreshDuringRebuildIsNotLost() {
+		save(alert(1L, java));
+		save(alert(2L, java));
+
+		// rebuild đã đọc bản cũ của alert 2 thì alert 2 được sửa và refresh, trước khi rebuild ghi index
+		afterNextLoad = () -> {
+			save(alert(2L, react));
+			index.refresh(2L);
+		};
+		index.rebuild();
+
+		assertThat(candidateIds(job(java))).containsExactly(1L);
+		assertThat(candidateIds(job(react))).containsExactly(2L);
+	}
+
+	@Test
+	void alertCreatedDuringRebuildIsNotLost() {
+		save(alert(1L, java));
+
+		afterNextLoad = () -> {
+			save(alert(2L, java));
+			index.refresh(2L);
+		};
+		index.rebuild();
+
+		assertThat(candidateIds(job(java))).containsExactlyInAnyOrder(1L, 2L);
+	}
+
+	@Test
+	void removeDuringRebuildIsNotLost() {
+		save(alert(1L, java));
+		save(alert(2L, java));
+
+		afterNextLoad = () -> {
+			database.remove(2L);
+			index.remove(2L);
+		};
+		index.rebuild();
+
+		assertThat(candidateIds(job(java))).containsExactly(1L);
+	}
+
+	private List<Long> candidateIds(Job job) {
+		return index.candidatesFor(job).stream().map(JobAlert::getId).toList();
+	}
+
+	private void save(JobAlert alert) {
+		database.put(alert.getId(), alert);
+	}
+
+	private static Skill skill(long id, String name) {
+		Skill skill = new Skill();
+		skill.setId(id);
+		skill.setName(name);
+		return skill;
+	}
+
+	private static JobAlert alert(long id, Skill... skills) {
+		JobAlert alert = new JobAlert();
+		alert.setId(id);
+		alert.setEmail("alert" + id + "@example.com");
+		alert.setSkills(new ArrayList<>(Arrays.asList(skills)));
+		return alert;
+	}
+
+	private static Job job(Skill... skills) {
+		Job job = new Job();
+		job.setId(100L);
+		job.setName("Developer");
+		job.setActive(true);
+		job.setSkills(new ArrayList<>(Arrays.asList(skills)));
+		return job;
+	}
+}
@@ -0,0 +1,294 @@
+package vn.hoidanit.jobhunter.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import vn.hoidanit.jobhunter.domain.Company;
+import vn.hoidanit.jobhunter.domain.Job;
+import vn.hoidanit.jobhunter.domain.Skill;
+import vn.hoidanit.jobhunter.repository.JobRepository;
+import vn.hoidanit.jobhunter.util.constant.LevelEnum;
+
+class JobSearchIndexTests {
+
+	// "Database" của test: JobRepository giả đọc từ map này
+	private final Map<Long, Job> database = new LinkedHashMap<>();
+	private JobRepository jobRepository;
+	private JobSearchIndex index;
+
+	// Chạy một lần ngay sau lần đọc findByIdsWithSkills kế tiếp (mô phỏng ghi đồng thời với rebuild)
+	private Runnable afterNextLoad;
+
+	@BeforeEach
+	void setUp() {
+		jobRepository = mock(JobRepository.class);
+		when(jobRepository.findAllIds()).thenAnswer(invocation -> new ArrayList<>(database.keySet()));
+		when(jobRepository.findByIdsWithSkills(anyList())).thenAnswer(invocation -> {
+			List<Job> jobs = new ArrayList<>();
+			for (Object id : (List<?>) invocation.getArgument(0)) {
+				Job job = database.get((Long) id);
+				if (job != null) {
+					jobs.add(job);
+				}
+			}
+			Runnable hook = afterNextLoad;
+			afterNextLoad = null;
+			if (hook != null) {
+				hook.run();
+			}
+			return jobs;
+		});
+		index = new JobSearchIndex(jobRepository);
+	}
+
+	@Test
+	void filtersIntersectLocationSkillLevelAndSalary() {
+		Skill java = skill(1L, "Java");
+		Skill react = skill(2L, "React");
+		save(job(1L, "Backend", "ABC", "TP.HCM", LevelEnum.SENIOR, 25_000_000, java));
+		save(job(2L, "Backend", "ABC", "Hà Nội", LevelEnum.SENIOR, 25_000_000, java));
+		save(job(3L, "Frontend", "ABC", "Hồ Chí Minh", LevelEnum.SENIOR, 25_000_000, react));
+		save(job(4L, "Backend", "ABC", "Sài Gòn", LevelEnum.JUNIOR, 25_000_000, java));
+		save(job(5L, "Backend", "ABC", "Ho Chi Minh", LevelEnum.SENIOR, 40_000_000, java));
+		save(job(6L, "Fullstack", "ABC", "HCM", LevelEnum.MIDDLE, 20_000_000, java, react));
+		index.rebuild();
+
+		// Các alias của TP.HCM cùng một location
+		assertThat(search(JobSearchIndex.Criteria.of(null, "Hồ Chí Minh", null, null, null, null, null, null)))
+				.containsExactlyInAnyOrder(1L, 3L, 4L, 5L, 6L);
+		assertThat(search(JobSearchIndex.Criteria.of(null, "tp.hcm", "java", 20_000_000.0, 30_000_000.0,
+				"SENIOR,MIDDLE", null, null))).containsExactlyInAnyOrder(1L, 6L);
+		// Nhiều giá trị của cùng tiêu chí là OR
+		assertThat(search(JobSearchIndex.Criteria.of(null, "Hà Nội,HCM", "react", null, null, null, null, null)))
+				.containsExactlyInAnyOrder(3L, 6L);
+		assertThat(search(JobSearchIndex.Criteria.of(null, "Đà Nẵng", null, null, null, null, null, null))).isEmpty();
+	}
+
+	@Test
+	void pagesFollowTheRequestedSort() {
+		for (long id = 1; id <= 25; id++) {
+			save(job(id, "Job " + id, "ABC", "Hà Nội", LevelEnum.JUNIOR, id * 1_000_000));
+		}
+		index.rebuild();
+		JobSearchIndex.Criteria all = JobSearchIndex.Criteria.of(null, null, null, null, null, null, null, null);
+
+		Page<Long> second = index.search(all, PageRequest.of(1, 10, Sort.by("salary").descending()));
+		assertThat(second.getContent()).containsExactly(15L, 14L, 13L, 12L, 11L, 10L, 9L, 8L, 7L, 6L);
+		assertThat(second.getTotalElements()).isEqualTo(25);
+		assertThat(second.getTotalPages()).isEqualTo(3);
+
+		assertThat(index.search(all, PageRequest.of(2, 10, Sort.by("salary"))).getContent())
+				.containsExactly(21L, 22L, 23L, 24L, 25L);
+		assertThat(index.search(all, PageRequest.of(3, 10, Sort.by("salary"))).getContent()).isEmpty();
+	}
+
+	@Test
+	void removedJobsLeaveNoStalePostingsWhenTheirSlotIsReused() {
+		Skill java = skill(1L, "Java");
+		Skill react = skill(2L, "React");
+		save(job(1L, "Java Developer", "ABC", "Hà Nội", LevelEnum.SENIOR, 30_000_000, java));
+		save(job(2L, "Tester", "ABC", "Hà Nội", LevelEnum.JUNIOR, 10_000_000));
+		index.rebuild();
+
+		database.remove(1L);
+		index.remove(1L);
+		save(job(3L, "React Developer", "XYZ", "Đà Nẵng", LevelEnum.JUNIOR, 15_000_000, react));
+		index.refresh(3L);
+
+		assertThat(search(JobSearchIndex.Criteria.of(null, null, "java", null, null, null, null, null))).isEmpty();
+		assertThat(search(JobSearchIndex.Criteria.of("java", null, null, null, null, null, null, null))).isEmpty();
+		assertThat(search(JobSearchIndex.Criteria.of(null, null, null, 25_000_000.0, null, null, null, null))).isEmpty();
+		assertThat(search(JobSearchIndex.Criteria.of(null, null, "react", null, null, "JUNIOR", null, null)))
+				.containsExactly(3L);
+		assertThat(search(JobSearchIndex.Criteria.of(null, null, null, null, null, "JUNIOR", null, null)))
+				.containsExactlyInAnyOrder(2L, 3L);
+	}
+
+	@Test
+	void refreshDuringRebuildIsNotLost() {
+		save(job(1L, "Java Developer", "ABC"));
+		save(job(2L, "Tester", "ABC"));
+
+		// rebuild đã đọc bản cũ của job 2 thì job 2 được sửa và refresh, trước khi rebuild ghi index
+		afterNextLoad = () -> {
+			save(job(2L, "Kotlin Developer", "ABC"));
+			index.refresh(2L);
+		};
+		index.rebuild();
+
+		assertThat(searchKeyword("kotlin")).containsExactly(2L);
+		assertThat(searchKeyword("tester")).isEmpty();
+	}
+
+	@Test
+	void removeDuringRebuildIsNotLost() {
+		save(job(1L, "Java Developer", "ABC"));
+		save(job(2L, "Tester", "ABC"));
+
+		afterNextLoad = () -> {
+			database.remove(2L);
+			index.remove(2L);
+		};
+		index.rebuild();
+
+		assertThat(search(JobSearchIndex.Criteria.of(null, null, null, null, null, null, null, null)))
+				.containsExactly(1L);
+	}
+
+	@Test
+	void batchRefreshReloadsExpiredJobsInOneQuery() {
+		for (long id = 1; id <= 3; id++) {
+			save(job(id, "Job " + id, "ABC"));
+		}
+		index.rebuild();
+		JobSearchIndex.Criteria all = JobSearchIndex.Criteria.of(null, null, null, null, null, null, null, null);
+		assertThat(index.facets(all).getTotal()).isEqualTo(3);
+
+		for (long id = 1; id <= 2; id++) {
+			Job expired = job(id, "Job " + id, "ABC");
+			expired.setActive(false);
+			save(expired);
+		}
+		clearInvocations(jobRepository);
+		index.refresh(List.of(1L, 2L));
+
+		verify(jobRepository, times(1)).findByIdsWithSkills(anyList());
+		assertThat(index.facets(all).getTotal()).isEqualTo(1);
+	}
+
+	@Test
+	void keywordMatchingIgnoresVietnameseAccents() {
+		save(job(1L, "Kế toán trưởng", "Công ty Đại Phát"));
+		save(job(2L, "Java Developer", "FPT"));
+		index.rebuild();
+
+		assertThat(searchKeyword("ke toan")).containsExactly(1L);
+		assertThat(searchKeyword("KẾ TOÁN")).containsExactly(1L);
+		assertThat(searchKeyword("dai phat")).containsExactly(1L);
+	}
+
+	@Test
+	void shortTokensWithOneTypoStillMatch() {
+		save(job(1L, "Java Developer", "FPT"));
+		save(job(2L, "Kế toán", "ABC"));
+		index.rebuild();
+
+		// 4-5 ký tự, sai 1 ký tự: không còn trigram chung, phải lọc bằng bigram
+		assertThat(searchKeyword("jaba")).containsExactly(1L);
+		assertThat(searchKeyword("toam")).containsExactly(2L);
+	}
+
+	@Test
+	void longTokensWithTwoTyposStillMatch() {
+		save(job(1L, "Java Developer", "FPT"));
+		save(job(2L, "Marketing Executive", "ABC"));
+		index.rebuild();
+
+		// 8-10 ký tự được sai 2 ký tự: trigram không còn lọc được, phải dùng bigram
+		assertThat(searchKeyword("devlopar")).containsExactly(1L);
+		assertThat(searchKeyword("marketng")).containsExactly(2L);
+	}
+
+	@Test
+	void typosBeyondTheAllowedEditsDoNotMatch() {
+		save(job(1L, "Java Developer", "FPT"));
+		index.rebuild();
+
+		assertThat(searchKeyword("jxyz")).isEmpty();
+		// 3 ký tự không được phép sai
+		assertThat(searchKeyword("jav")).containsExactly(1L);
+		assertThat(searchKeyword("jab")).isEmpty();
+	}
+
+	@Test
+	void exactWordMatchesRankBeforeTypos() {
+		save(job(1L, "Jaca Engineer", "ABC"));
+		save(job(2L, "Java Engineer", "ABC"));
+		save(job(3L, "Senior Javascript Engineer", "ABC"));
+		index.rebuild();
+
+		// Trùng nguyên từ 4, nằm trong từ 3, gần đúng 1
+		assertThat(searchKeyword("java")).containsExactly(2L, 3L, 1L);
+	}
+
+	@Test
+	void rankedTotalIsCappedAtTheRankingLimit() {
+		Skill java = skill(1L, "Java");
+		int jobCount = JobSearchIndex.MAX_RANKED_RESULTS + 5;
+		for (long id = 1; id <= jobCount; id++) {
+			save(job(id, "Job " + id, "ABC", java));
+		}
+		index.rebuild();
+
+		Page<Long> first = index.rankMatching(new long[] { 1L }, null, 0, PageRequest.of(0, 10));
+		assertThat(first.getContent()).hasSize(10);
+		assertThat(first.getTotalElements()).isEqualTo(JobSearchIndex.MAX_RANKED_RESULTS);
+		assertThat(first.getTotalPages()).isEqualTo(JobSearchIndex.MAX_RANKED_RESULTS / 10);
+
+		// Trang cuối trong giới hạn vẫn đủ, trang sau đó rỗng thay vì thiếu job
+		assertThat(index.rankMatching(new long[] { 1L }, null, 0, PageRequest.of(99, 10)).getContent()).hasSize(10);
+		Page<Long> beyond = index.rankMatching(new long[] { 1L }, null, 0, PageRequest.of(100, 10));
+		assertThat(beyond.getContent()).isEmpty();
+		assertThat(beyond.getTotalElements()).isEqualTo(JobSearchIndex.MAX_RANKED_RESULTS);
+	}
+
+	private List<Long> searchKeyword(String keyword) {
+		return search(JobSearchIndex.Criteria.of(keyword, null, null, null, null, null, null, null));
+	}
+
+	private List<Long> search(JobSearchIndex.Criteria criteria) {
+		return index.search(criteria, PageRequest.of(0, 20)).getContent();
+	}
+
+	private void save(Job job) {
+		database.put(job.getId(), job);
+	}
+
+	private static Skill skill(long id, String name) {
+		Skill skill = new Skill();
+		skill.setId(id);
+		skill.setName(name);
+		return skill;
+	}
+
+	private static Job job(long id, String name, String companyName, Skill... skills) {
+		return job(id, name, companyName, "Hà Nội", null, 0, skills);
+	}
+
+	private static Job job(long id, String name, String companyName, String location, LevelEnum level, double salary,
+			Skill... skills) {
+		Company company = new Company();
+		company.setId(id);
+		company.setName(companyName);
+
+		Job job = new Job();
+		job.setId(id);
+		job.setName(name);
+		job.setCompany(company);
+		job.setLocation(location);
+		job.setLevel(level);
+		job.setSalary(salary);
+		job.setActive(true);
+		job.setCreatedAt(Instant.now());
+		job.setSkills(new ArrayList<>(Arrays.asList(skills)));
+		return job;
+	}
+}
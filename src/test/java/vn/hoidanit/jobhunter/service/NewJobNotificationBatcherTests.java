@@ -0,0 +1,178 @@
+package vn.hoidanit.jobhunter.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import vn.hoidanit.jobhunter.domain.Job;
+import vn.hoidanit.jobhunter.domain.JobAlert;
+import vn.hoidanit.jobhunter.domain.Skill;
+import vn.hoidanit.jobhunter.domain.User;
+import vn.hoidanit.jobhunter.domain.response.email.ResEmailJob;
+import vn.hoidanit.jobhunter.repository.JobAlertRepository;
+import vn.hoidanit.jobhunter.repository.JobAlertSentJobRepository;
+import vn.hoidanit.jobhunter.repository.JobRepository;
+
+class NewJobNotificationBatcherTests {
+
+	private JobRepository jobRepository;
+	private ActiveJobAlertReader activeJobAlertReader;
+	private EmailOutboxService emailOutboxService;
+	private NewJobNotificationBatcher batcher;
+
+	private final Skill java = skill(1L, "Java");
+	private final Skill react = skill(2L, "React");
+
+	@BeforeEach
+	void setUp() {
+		jobRepository = mock(JobRepository.class);
+		activeJobAlertReader = mock(ActiveJobAlertReader.class);
+		emailOutboxService = mock(EmailOutboxService.class);
+		TaskExecutorAdapter directExecutor = new TaskExecutorAdapter(Runnable::run);
+		JobAlertSentLedger ledger = new JobAlertSentLedger(
+				mock(JobAlertSentJobRepository.class), mock(JdbcTemplate.class), mock(PlatformTransactionManager.class));
+
+		// Index chưa sẵn sàng: alert được duyệt qua ActiveJobAlertReader
+		JobAlertService jobAlertService = new JobAlertService(
+				mock(JobAlertRepository.class),
+				jobRepository,
+				emailOutboxService,
+				mock(JobEmailRenderer.class),
+				mock(JobAlertIndex.class),
+				activeJobAlertReader,
+				mock(JobSearchIndex.class),
+				new SimpleMeterRegistry(),
+				ledger,
+				directExecutor,
+				directExecutor,
+				1,
+				10);
+		batcher = new NewJobNotificationBatcher(jobAlertService, directExecutor);
+	}
+
+	@Test
+	void batchedNewJobsSendOneEmailPerSubscriber() {
+		Job javaJob = job(10L, java);
+		Job reactJob = job(11L, react);
+		when(jobRepository.findByIdsWithSkills(anyList())).thenReturn(List.of(javaJob, reactJob));
+
+		User user = new User();
+		user.setId(5L);
+		user.setEmail("dev@example.com");
+		// Hai alert của cùng một user, hai alert chỉ có email (không gắn user)
+		List<JobAlert> alerts = List.of(
+				alert(1L, user, null, java),
+				alert(2L, user, null, react),
+				alert(3L, null, "a@example.com", java),
+				alert(4L, null, "b@example.com", java));
+		when(activeJobAlertReader.chunks()).thenReturn(List.of(alerts));
+
+		batcher.submit(javaJob);
+		batcher.submit(reactJob);
+		batcher.flush();
+
+		ArgumentCaptor<Object> jobs = ArgumentCaptor.forClass(Object.class);
+		verify(emailOutboxService).enqueueTemplate(eq("dev@example.com"), anyString(), eq("job"), any(), jobs.capture());
+		assertThat(jobNames(jobs.getValue())).containsExactlyInAnyOrder("Job 10", "Job 11");
+		// Mỗi alert chỉ có email có giới hạn trong ngày riêng
+		verify(emailOutboxService).enqueueTemplate(eq("a@example.com"), anyString(), eq("job"), any(), any());
+		verify(emailOutboxService).enqueueTemplate(eq("b@example.com"), anyString(), eq("job"), any(), any());
+	}
+
+	@Test
+	void jobsAlreadyNotifiedAreNotSentAgain() {
+		Job javaJob = job(10L, java);
+		when(jobRepository.findByIdsWithSkills(anyList())).thenReturn(List.of(javaJob));
+		when(activeJobAlertReader.chunks()).thenReturn(List.of(List.of(alert(3L, null, "a@example.com", java))));
+
+		batcher.submit(javaJob);
+		batcher.flush();
+		batcher.submit(javaJob);
+		batcher.flush();
+
+		verify(emailOutboxService, times(1)).enqueueTemplate(anyString(), anyString(), anyString(), any(), any());
+	}
+
+	@Test
+	void inactiveJobsAreNotBatched() {
+		Job closed = job(10L, java);
+		closed.setActive(false);
+
+		batcher.submit(closed);
+		batcher.flush();
+
+		verify(jobRepository, never()).findByIdsWithSkills(anyList());
+	}
+
+	@Test
+	void newJobNotificationRunsInAWritableTransaction() throws NoSuchMethodException {
+		AnnotationTransactionAttributeSource source = new AnnotationTransactionAttributeSource();
+
+		TransactionAttribute notify = source.getTransactionAttribute(
+				JobAlertService.class.getMethod("sendNotificationForNewJobs", Collection.class), JobAlertService.class);
+		assertThat(notify).isNotNull();
+		assertThat(notify.isReadOnly()).isFalse();
+
+		// Email được ghi vào outbox trong transaction của lô, lô rollback thì không còn email
+		TransactionAttribute enqueue = source.getTransactionAttribute(
+				EmailOutboxService.class.getMethod("enqueueTemplate",
+						String.class, String.class, String.class, String.class, Object.class),
+				EmailOutboxService.class);
+		assertThat(enqueue.getPropagationBehavior()).isEqualTo(TransactionDefinition.PROPAGATION_REQUIRED);
+	}
+
+	private static List<String> jobNames(Object value) {
+		List<String> names = new ArrayList<>();
+		for (Object item : (List<?>) value) {
+			names.add(((ResEmailJob) item).getName());
+		}
+		return names;
+	}
+
+	private static Skill skill(long id, String name) {
+		Skill skill = new Skill();
+		skill.setId(id);
+		skill.setName(name);
+		return skill;
+	}
+
+	private static Job job(long id, Skill skill) {
+		Job job = new Job();
+		job.setId(id);
+		job.setName("Job " + id);
+		job.setActive(true);
+		job.setSkills(List.of(skill));
+		return job;
+	}
+
+	private static JobAlert alert(long id, User user, String email, Skill skill) {
+		JobAlert alert = new JobAlert();
+		alert.setId(id);
+		alert.setUser(user);
+		alert.setEmail(email);
+		alert.setSkills(new ArrayList<>(List.of(skill)));
+		return alert;
+	}
+}
@@ -0,0 +1,39 @@
+package vn.hoidanit.jobhunter.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import vn.hoidanit.jobhunter.util.error.IdInvalidException;
+
+class KeysetCursorTests {
+
+	@Test
+	void defaultsToNewestFirst() throws IdInvalidException {
+		assertThat(KeysetCursor.orderOf(Sort.unsorted())).isEqualTo(Sort.Order.desc("createdAt"));
+		assertThat(KeysetCursor.orderOf(Sort.by("salary").ascending())).isEqualTo(Sort.Order.asc("salary"));
+	}
+
+	@Test
+	void rejectsSortKeysThatAreNotJobColumns() {
+		assertThatThrownBy(() -> KeysetCursor.orderOf(Sort.by("company.name")))
+				.isInstanceOf(IdInvalidException.class);
+		assertThatThrownBy(() -> KeysetCursor.orderOf(Sort.by("description")))
+				.isInstanceOf(IdInvalidException.class);
+	}
+
+	@Test
+	void decodesWhatItEncodes() throws IdInvalidException {
+		Sort.Order order = Sort.Order.desc("salary");
+		KeysetCursor cursor = new KeysetCursor("salary", Sort.Direction.DESC, "1500.0", 42L);
+
+		KeysetCursor decoded = KeysetCursor.decode(cursor.encode(), order);
+
+		assertThat(decoded).isEqualTo(cursor);
+		assertThat(decoded.typedValue(Double.class)).isEqualTo(1500.0);
+		assertThatThrownBy(() -> KeysetCursor.decode(cursor.encode(), Sort.Order.asc("salary")))
+				.isInstanceOf(IdInvalidException.class);
+	}
+}
@@ -0,0 +1,188 @@
+package vn.hoidanit.jobhunter.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bản sao LocationMatcher trước khi chuyển sang từ điển ID (quét tuyến tính các tập alias),
+ * chỉ dùng làm chuẩn so sánh trong test. Khác bản gốc duy nhất ở normalize: bản gốc lowercase
+ * rồi xóa luôn các chữ có dấu ("Hà Nội" -> "h ni"), ở đây chuỗi được bỏ dấu trước bằng
+ * TextNormalizer.fold để so sánh được thuật toán tra alias của hai bản.
+ */
+final class LegacyLocationMatcher {
+
+	private static final Map<String, Set<String>> LOCATION_ALIASES = new HashMap<>();
+	private static final Set<String> ALL_NAMES = new LinkedHashSet<>();
+
+	static {
+		// Hà Nội
+		addLocation("Hà Nội", "Ha Noi", "Hanoi", "Thủ đô Hà Nội", "Thu do Ha Noi");
+
+		// Hồ Chí Minh
+		addLocation("Hồ Chí Minh", "Ho Chi Minh", "TP.HCM", "TP HCM", "Sài Gòn", "Sai Gon",
+				"Thành phố Hồ Chí Minh", "Thanh pho Ho Chi Minh", "HCM", "TP.HCM", "TPHCM");
+
+		// Hải Phòng
+		addLocation("Hải Phòng", "Hai Phong", "HP");
+
+		// Đà Nẵng
+		addLocation("Đà Nẵng", "Da Nang", "DN");
+
+		// Cần Thơ
+		addLocation("Cần Thơ", "Can Tho", "CT");
+
+		// Bà Rịa - Vũng Tàu
+		addLocation("Bà Rịa - Vũng Tàu", "Ba Ria - Vung Tau", "Vũng Tàu", "Vung Tau",
+				"BR-VT", "BRVT", "Bà Rịa Vũng Tàu", "Ba Ria Vung Tau");
+
+		// Bình Dương
+		addLocation("Bình Dương", "Binh Duong", "BD");
+
+		// Đồng Nai
+		addLocation("Đồng Nai", "Dong Nai", "DN2");
+
+		// Khánh Hòa
+		addLocation("Khánh Hòa", "Khanh Hoa", "Nha Trang", "KH");
+
+		// Lâm Đồng
+		addLocation("Lâm Đồng", "Lam Dong", "Đà Lạt", "Da Lat", "LD");
+
+		// Quảng Ninh
+		addLocation("Quảng Ninh", "Quang Ninh", "Hạ Long", "Ha Long", "QN");
+
+		// Thừa Thiên Huế
+		addLocation("Thừa Thiên Huế", "Thua Thien Hue", "Huế", "Hue", "HUE");
+
+		// Nghệ An
+		addLocation("Nghệ An", "Nghe An", "Vinh", "NA");
+
+		// Các tỉnh khác (có thể bổ sung thêm)
+		addLocation("An Giang", "AG");
+		addLocation("Bạc Liêu", "Bac Lieu", "BL");
+		addLocation("Bắc Kạn", "Bac Kan", "BK");
+		addLocation("Bắc Giang", "Bac Giang", "BG");
+		addLocation("Bắc Ninh", "Bac Ninh", "BN");
+		addLocation("Bến Tre", "Ben Tre", "BT");
+		addLocation("Bình Định", "Binh Dinh", "BD2");
+		addLocation("Bình Phước", "Binh Phuoc", "BP");
+		addLocation("Bình Thuận", "Binh Thuan", "BT2");
+		addLocation("Cà Mau", "Ca Mau", "CM");
+		addLocation("Cao Bằng", "Cao Bang", "CB");
+		addLocation("Đắk Lắk", "Dak Lak", "Đắc Lắc", "DL");
+		addLocation("Đắk Nông", "Dak Nong", "Đắc Nông", "DG");
+		addLocation("Điện Biên", "Dien Bien", "DB");
+		addLocation("Đồng Tháp", "Dong Thap", "DT");
+		addLocation("Gia Lai", "GL");
+		addLocation("Hà Giang", "Ha Giang", "HG");
+		addLocation("Hà Nam", "Ha Nam", "HN2");
+		addLocation("Hà Tĩnh", "Ha Tinh", "HT");
+		addLocation("Hải Dương", "Hai Duong", "HD");
+		addLocation("Hòa Bình", "Hoa Binh", "HB");
+		addLocation("Hưng Yên", "Hung Yen", "HY");
+		addLocation("Kiên Giang", "Kien Giang", "KG");
+		addLocation("Lào Cai", "Lao Cai", "LC");
+		addLocation("Lạng Sơn", "Lang Son", "LS");
+		addLocation("Long An", "LA");
+		addLocation("Nam Định", "Nam Dinh", "ND");
+		addLocation("Ninh Bình", "Ninh Binh", "NB");
+		addLocation("Ninh Thuận", "Ninh Thuan", "NT");
+		addLocation("Phú Thọ", "Phu Tho", "PT");
+		addLocation("Phú Yên", "Phu Yen", "PY");
+		addLocation("Quảng Bình", "Quang Binh", "QB");
+		addLocation("Quảng Nam", "Quang Nam", "QN");
+		addLocation("Quảng Ngãi", "Quang Ngai", "QG");
+		addLocation("Quảng Trị", "Quang Tri", "QT");
+		addLocation("Sóc Trăng", "Soc Trang", "ST");
+		addLocation("Sơn La", "Son La", "SL");
+		addLocation("Tây Ninh", "Tay Ninh", "TN");
+		addLocation("Thái Bình", "Thai Binh", "TB");
+		addLocation("Thái Nguyên", "Thai Nguyen", "TY");
+		addLocation("Thanh Hóa", "Thanh Hoa", "TH");
+		addLocation("Tiền Giang", "Tien Giang", "TG");
+		addLocation("Trà Vinh", "Tra Vinh", "TV");
+		addLocation("Tuyên Quang", "Tuyen Quang", "TQ");
+		addLocation("Vĩnh Long", "Vinh Long", "VL");
+		addLocation("Vĩnh Phúc", "Vinh Phuc", "VP");
+		addLocation("Yên Bái", "Yen Bai", "YB");
+	}
+
+
+	private LegacyLocationMatcher() {
+	}
+
+	private static void addLocation(String mainName, String... aliases) {
+		Set<String> aliasSet = new HashSet<>();
+		aliasSet.add(normalize(mainName));
+		ALL_NAMES.add(mainName);
+		for (String alias : aliases) {
+			aliasSet.add(normalize(alias));
+			ALL_NAMES.add(alias);
+		}
+		LOCATION_ALIASES.put(normalize(mainName), aliasSet);
+	}
+
+	private static String normalize(String location) {
+		if (location == null) {
+			return "";
+		}
+		return TextNormalizer.fold(location)
+				.replaceAll("\\s+", " ")
+				.replaceAll("[^a-z0-9\\s]", "");
+	}
+
+	static boolean matches(String location1, String location2) {
+		if (location1 == null || location2 == null) {
+			return false;
+		}
+
+		String norm1 = normalize(location1);
+		String norm2 = normalize(location2);
+		if (norm1.equals(norm2)) {
+			return true;
+		}
+
+		Set<String> aliases1 = findAliases(norm1);
+		Set<String> aliases2 = findAliases(norm2);
+		if (!aliases1.isEmpty() && !aliases2.isEmpty()) {
+			return !Collections.disjoint(aliases1, aliases2);
+		}
+		if (!aliases1.isEmpty()) {
+			return aliases1.contains(norm2);
+		}
+		if (!aliases2.isEmpty()) {
+			return aliases2.contains(norm1);
+		}
+
+		if (norm1.contains(norm2) || norm2.contains(norm1)) {
+			int lengthDiff = Math.abs(norm1.length() - norm2.length());
+			if (lengthDiff <= 5) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static boolean isKnownLocation(String location) {
+		return location != null && !findAliases(normalize(location)).isEmpty();
+	}
+
+	/**
+	 * Mọi tên gọi (chưa chuẩn hóa) có trong từ điển cũ
+	 */
+	static Set<String> allNames() {
+		return ALL_NAMES;
+	}
+
+	private static Set<String> findAliases(String normalizedLocation) {
+		for (Map.Entry<String, Set<String>> entry : LOCATION_ALIASES.entrySet()) {
+			if (entry.getValue().contains(normalizedLocation)) {
+				return entry.getValue();
+			}
+		}
+		return Collections.emptySet();
+	}
+}
@@ -0,0 +1,74 @@
+package vn.hoidanit.jobhunter.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class LocationMatcherTests {
+
+	private static final int QUANG_NINH_ID = 11;
+	private static final int QUANG_NAM_ID = 46;
+
+	// Location không có trong từ điển, đi qua nhánh so khớp chứa nhau
+	private static final List<String> UNKNOWN_LOCATIONS = List.of(
+			"Remote", "Quận 1", "Quan 1 HCM", "Hanoi City", "Singapore", "", "  ", "Ha Noi ", "TP. HCM", "ha-noi");
+
+	@Test
+	void agreesWithTheLegacyMatcherOnEveryPair() {
+		List<String> names = new ArrayList<>(LegacyLocationMatcher.allNames());
+		names.addAll(UNKNOWN_LOCATIONS);
+
+		List<String> differences = new ArrayList<>();
+		for (String a : names) {
+			assertThat(LocationMatcher.isKnownLocation(a)).as(a).isEqualTo(LegacyLocationMatcher.isKnownLocation(a));
+			for (String b : names) {
+				boolean legacy = LegacyLocationMatcher.matches(a, b);
+				if (LocationMatcher.matches(a, b) != legacy && !isQuangNinhVersusQuangNam(a, b, legacy)) {
+					differences.add(a + " | " + b + " (legacy " + legacy + ")");
+				}
+			}
+		}
+		assertThat(differences).isEmpty();
+	}
+
+	@Test
+	void sharedAliasNoLongerMergesTwoProvinces() {
+		// Bản cũ: "QN" nằm trong cả hai tập alias nên Quảng Ninh match Quảng Nam
+		assertThat(LegacyLocationMatcher.matches("Quảng Ninh", "Quảng Nam")).isTrue();
+
+		assertThat(LocationMatcher.matches("Quảng Ninh", "Quảng Nam")).isFalse();
+		// Alias trùng thuộc về tỉnh khai báo trước
+		assertThat(LocationMatcher.locationId("QN")).isEqualTo(QUANG_NINH_ID);
+		assertThat(LocationMatcher.matches("QN", "Hạ Long")).isTrue();
+	}
+
+	@Test
+	void aliasesShareOneIdAndCanonicalName() {
+		int hcm = LocationMatcher.locationId("Hồ Chí Minh");
+		for (String alias : List.of("TP.HCM", "tp hcm", "Sài Gòn", "Sai Gon", "Thanh pho Ho Chi Minh", "  hcm ")) {
+			assertThat(LocationMatcher.locationId(alias)).as(alias).isEqualTo(hcm);
+		}
+		assertThat(LocationMatcher.getCanonicalName("sai gon")).isEqualTo("Hồ Chí Minh");
+		assertThat(LocationMatcher.getCanonicalName("Bà Rịa Vũng Tàu")).isEqualTo("Bà Rịa - Vũng Tàu");
+		assertThat(LocationMatcher.getCanonicalName(" Singapore ")).isEqualTo("Singapore");
+		assertThat(LocationMatcher.locationId("Singapore")).isEqualTo(LocationMatcher.UNKNOWN_LOCATION_ID);
+	}
+
+	@Test
+	void unknownLocationsMatchByContainment() {
+		assertThat(LocationMatcher.matches("Quận 1", "Quan 1 HCM")).isTrue();
+		assertThat(LocationMatcher.matches("Remote", "Remote - Part time job")).isFalse();
+		assertThat(LocationMatcher.matches("Singapore", null)).isFalse();
+	}
+
+	// Khác biệt có chủ đích duy nhất: bản cũ coi mọi tên của Quảng Ninh và Quảng Nam là một tỉnh
+	private static boolean isQuangNinhVersusQuangNam(String a, String b, boolean legacy) {
+		int idA = LocationMatcher.locationId(a);
+		int idB = LocationMatcher.locationId(b);
+		return legacy
+				&& ((idA == QUANG_NINH_ID && idB == QUANG_NAM_ID) || (idA == QUANG_NAM_ID && idB == QUANG_NINH_ID));
+	}
+}